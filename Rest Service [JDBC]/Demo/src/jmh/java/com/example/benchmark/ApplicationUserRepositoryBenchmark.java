@@ -0,0 +1,83 @@
+package com.example.benchmark;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.entities.ApplicationUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency percentiles ({@link Mode#SampleTime}) of the user queries for every
+ * {@link RepositoryImplementation}. Run with {@code -prof gc} for the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ApplicationUserRepositoryBenchmark {
+
+    @Param
+    public RepositoryImplementation implementation;
+
+    private BenchmarkDatabase database;
+
+    private ApplicationUserRepository repository;
+
+    private ApplicationUser[] users;
+
+    private String loginPrefix;
+
+    private final AtomicLong registrations = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        repository = database.userRepository(implementation);
+        users = new ApplicationUser[Math.min(1000, database.userCount())];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = repository.findById(database.user(i).getId()).orElseThrow();
+        }
+        loginPrefix = "+71" + Long.toString(System.currentTimeMillis(), 36) + "-";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<ApplicationUser> findByLogin() {
+        return repository.findByLogin(database.randomUser().getLogin());
+    }
+
+    @Benchmark
+    public ApplicationUser save() {
+        var user = new ApplicationUser(null, loginPrefix + registrations.incrementAndGet(), "password", 100000L);
+        return repository.save(user);
+    }
+
+    @Benchmark
+    public ApplicationUser update() {
+        ApplicationUser user = users[ThreadLocalRandom.current().nextInt(users.length)];
+        user.setFirstName("Name" + ThreadLocalRandom.current().nextInt(1000));
+        return repository.update(user);
+    }
+
+}
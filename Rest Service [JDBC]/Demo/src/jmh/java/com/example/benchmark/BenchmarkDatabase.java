@@ -0,0 +1,173 @@
+package com.example.benchmark;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.data.impl.ApplicationUserJDBCRepository;
+import com.example.data.impl.ApplicationUserJdbcTemplateRepository;
+import com.example.data.impl.ApplicationUserNamedParameterJdbcOperationsRepository;
+import com.example.data.impl.ApplicationUserNamedParameterJdbcTemplateRepository;
+import com.example.data.impl.ApplicationUserOperationJdbcRepository;
+import com.example.data.impl.PaymentJDBCRepository;
+import com.example.data.impl.PaymentJdbcOperationsRepository;
+import com.example.data.impl.PaymentJdbcTemplateRepository;
+import com.example.data.impl.PaymentNamedParameterJdbcOperationsRepository;
+import com.example.data.impl.PaymentNamedParameterJdbcTemplateRepository;
+import com.example.entities.ApplicationUser;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PostgreSQL for the benchmarks, migrated with the application's Flyway scripts and seeded with
+ * {@link #USERS} users of {@link #PAYMENTS_PER_USER} payments each. Uses the database given by
+ * {@code -Dbenchmark.jdbc-url} (or {@code BENCHMARK_JDBC_URL}), e.g. the one from docker-compose.yml,
+ * and otherwise starts a throwaway container. Point it at a scratch database: benchmarks insert
+ * users and payments and never clean up. JMH forks do not inherit {@code -D} options, pass them with
+ * {@code -jvmArgsAppend}.
+ * <p>
+ * Repositories are created directly rather than taken from the application context, so the numbers
+ * are those of the access path alone, without the connection counting and archive decorators.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final int USERS = 10_000;
+
+    static final int PAYMENTS_PER_USER = 100;
+
+    static final String LOGIN_PREFIX = "+7000";
+
+    private static final String SEED_USERS_SQL = """
+            INSERT INTO application_user (login, password, balance)
+            SELECT ? || lpad(i::text, 7, '0'), 'password', 1000000000000000
+            FROM generate_series(1, ?) AS i
+            ON CONFLICT (login) DO NOTHING
+            """;
+
+    private static final String SEED_PAYMENTS_SQL = """
+            INSERT INTO payment (date, phone, amount, user_id)
+            SELECT LOCALTIMESTAMP - make_interval(mins => n), '+79876543210', 100 + n, u.id
+            FROM application_user u CROSS JOIN generate_series(1, ?) AS n
+            WHERE u.login LIKE ? || '%'
+            """;
+
+    private final PostgreSQLContainer<?> container;
+
+    private final HikariDataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final long[] userIds;
+
+    private final String[] logins;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> container, HikariDataSource dataSource) {
+        this.container = container;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        jdbcTemplate.queryForObject("SELECT create_payment_partitions(3)", Integer.class);
+        seed();
+        List<ApplicationUser> users = jdbcTemplate.query(
+                "SELECT id, login FROM application_user WHERE login LIKE ? || '%' ORDER BY id",
+                (rs, rowNum) -> new ApplicationUser(rs.getLong("id"), rs.getString("login"), "password", null),
+                LOGIN_PREFIX);
+        this.userIds = users.stream().mapToLong(ApplicationUser::getId).toArray();
+        this.logins = users.stream().map(ApplicationUser::getLogin).toArray(String[]::new);
+    }
+
+    static BenchmarkDatabase start() {
+        String url = setting("benchmark.jdbc-url", "BENCHMARK_JDBC_URL", null);
+        PostgreSQLContainer<?> container = null;
+        var dataSource = new HikariDataSource();
+        if (url == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+            dataSource.setJdbcUrl(container.getJdbcUrl());
+            dataSource.setUsername(container.getUsername());
+            dataSource.setPassword(container.getPassword());
+        } else {
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(setting("benchmark.jdbc-username", "BENCHMARK_JDBC_USERNAME", "postgres"));
+            dataSource.setPassword(setting("benchmark.jdbc-password", "BENCHMARK_JDBC_PASSWORD", "postgres"));
+        }
+        return new BenchmarkDatabase(container, dataSource);
+    }
+
+    private static String setting(String property, String variable, String defaultValue) {
+        String value = System.getProperty(property, System.getenv(variable));
+        return value != null ? value : defaultValue;
+    }
+
+    private void seed() {
+        Integer seeded = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM application_user WHERE login LIKE ? || '%'", Integer.class, LOGIN_PREFIX);
+        if (seeded != null && seeded >= USERS) {
+            return;
+        }
+        jdbcTemplate.update(SEED_USERS_SQL, LOGIN_PREFIX, USERS);
+        jdbcTemplate.update(SEED_PAYMENTS_SQL, PAYMENTS_PER_USER, LOGIN_PREFIX);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    ApplicationUserRepository userRepository(RepositoryImplementation implementation) {
+        return switch (implementation) {
+            case DATA_SOURCE -> new ApplicationUserJDBCRepository(dataSource);
+            case JDBC_TEMPLATE -> new ApplicationUserJdbcTemplateRepository(jdbcTemplate);
+            case JDBC_OPERATIONS -> new ApplicationUserOperationJdbcRepository(jdbcTemplate);
+            case NAMED_PARAMETER_JDBC_TEMPLATE ->
+                    new ApplicationUserNamedParameterJdbcTemplateRepository(namedParameterJdbcTemplate);
+            case NAMED_PARAMETER_JDBC_OPERATIONS ->
+                    new ApplicationUserNamedParameterJdbcOperationsRepository(namedParameterJdbcTemplate);
+        };
+    }
+
+    PaymentRepository paymentRepository(RepositoryImplementation implementation) {
+        return switch (implementation) {
+            case DATA_SOURCE -> new PaymentJDBCRepository(dataSource);
+            case JDBC_TEMPLATE -> new PaymentJdbcTemplateRepository(jdbcTemplate);
+            case JDBC_OPERATIONS -> new PaymentJdbcOperationsRepository(jdbcTemplate);
+            case NAMED_PARAMETER_JDBC_TEMPLATE ->
+                    new PaymentNamedParameterJdbcTemplateRepository(namedParameterJdbcTemplate);
+            case NAMED_PARAMETER_JDBC_OPERATIONS ->
+                    new PaymentNamedParameterJdbcOperationsRepository(namedParameterJdbcTemplate);
+        };
+    }
+
+    HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    int userCount() {
+        return userIds.length;
+    }
+
+    ApplicationUser user(int index) {
+        return new ApplicationUser(userIds[index], logins[index], "password", null);
+    }
+
+    ApplicationUser randomUser() {
+        return user(ThreadLocalRandom.current().nextInt(userIds.length));
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+}
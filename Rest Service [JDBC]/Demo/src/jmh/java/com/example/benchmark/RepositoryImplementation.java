@@ -0,0 +1,18 @@
+package com.example.benchmark;
+
+/**
+ * The access paths each repository is implemented with, see {@code com.example.data.impl}.
+ */
+public enum RepositoryImplementation {
+
+    DATA_SOURCE,
+
+    JDBC_TEMPLATE,
+
+    JDBC_OPERATIONS,
+
+    NAMED_PARAMETER_JDBC_TEMPLATE,
+
+    NAMED_PARAMETER_JDBC_OPERATIONS
+
+}
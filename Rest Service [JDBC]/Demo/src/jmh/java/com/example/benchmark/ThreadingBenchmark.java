@@ -0,0 +1,101 @@
+package com.example.benchmark;
+
+import com.example.api.dto.PaymentData;
+import com.example.config.ConnectionLimitingDataSource;
+import com.example.data.PaymentRepository;
+import com.example.data.impl.PaymentNamedParameterJdbcTemplateRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serve {@code concurrency} simultaneous history page reads, the blocking call behind
+ * {@code /api/history}, from one connection pool of the default size: on platform threads as many
+ * as Tomcat's default request pool, on virtual threads contending inside Hikari, and on virtual
+ * threads queued by {@link ConnectionLimitingDataSource} as the application does with
+ * {@code spring.threads.virtual.enabled}. Divide {@code concurrency} by the score for reads per
+ * millisecond. Add {@code -jvmArgsAppend -Djdk.tracePinnedThreads=short} to print pinned stacks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ThreadingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param
+    public ThreadingMode threading;
+
+    @Param({"200", "2000"})
+    public int concurrency;
+
+    private BenchmarkDatabase database;
+
+    private ExecutorService executor;
+
+    private PaymentRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        HikariDataSource pool = database.dataSource();
+        DataSource dataSource = threading == ThreadingMode.VIRTUAL_LIMITED ?
+                new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(),
+                        Duration.ofMillis(pool.getConnectionTimeout())) :
+                pool;
+        repository = new PaymentNamedParameterJdbcTemplateRepository(new NamedParameterJdbcTemplate(dataSource));
+        executor = threading == ThreadingMode.PLATFORM ?
+                Executors.newFixedThreadPool(PLATFORM_THREADS) :
+                Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        database.close();
+    }
+
+    @Benchmark
+    public int historyPages() throws InterruptedException, ExecutionException {
+        List<Future<List<PaymentData>>> pages = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            pages.add(executor.submit(() -> repository.findAllByUser(database.randomUser(), 0, null, null,
+                    PageRequest.of(0, PAGE_SIZE, Sort.by("id").ascending()))));
+        }
+        int payments = 0;
+        for (Future<List<PaymentData>> page : pages) {
+            payments += page.get().size();
+        }
+        return payments;
+    }
+
+}
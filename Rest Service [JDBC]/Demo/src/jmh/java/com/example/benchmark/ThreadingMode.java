@@ -0,0 +1,14 @@
+package com.example.benchmark;
+
+/**
+ * How {@link ThreadingBenchmark} runs concurrent requests, see its description.
+ */
+public enum ThreadingMode {
+
+    PLATFORM,
+
+    VIRTUAL,
+
+    VIRTUAL_LIMITED
+
+}
@@ -0,0 +1,7 @@
+package com.example.api.dto;
+
+import java.util.List;
+
+public record PagedHistory(List<PaymentData> payments, Integer page, int size, Long totalCount, Long totalPages,
+                           String nextCursor) {
+}
@@ -0,0 +1,6 @@
+package com.example.api.dto;
+
+import java.util.List;
+
+public record SpendingSummary(List<SummaryBucket> days, List<SummaryBucket> months, List<SummaryBucket> phones) {
+}
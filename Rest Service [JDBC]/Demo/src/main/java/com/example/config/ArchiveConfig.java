@@ -0,0 +1,27 @@
+package com.example.config;
+
+import com.example.data.archive.ArchivingPaymentRepository;
+import com.example.data.archive.PaymentArchive;
+import com.example.data.routing.RoutingPaymentRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ArchiveConfig {
+
+    @Bean
+    public static BeanPostProcessor archivingPaymentRepositoryPostProcessor(ObjectProvider<PaymentArchive> archive) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof RoutingPaymentRepository repository) {
+                    return new ArchivingPaymentRepository(repository, archive);
+                }
+                return bean;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.example.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Counts connections taken from the pool by the current thread. Connections reused from a
+ * Spring-managed transaction are not taken from the pool again and are therefore not counted.
+ */
+public class ConnectionCountingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<int[]> ACQUIRED = ThreadLocal.withInitial(() -> new int[1]);
+
+    public ConnectionCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        ACQUIRED.get()[0]++;
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        ACQUIRED.get()[0]++;
+        return connection;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    public static int acquiredByCurrentThread() {
+        return ACQUIRED.get()[0];
+    }
+
+    public static void reset() {
+        ACQUIRED.remove();
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.example.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+public class ConnectionUsageFilter extends OncePerRequestFilter {
+
+    private final DistributionSummary connectionsPerRequest;
+
+    public ConnectionUsageFilter(MeterRegistry meterRegistry) {
+        this.connectionsPerRequest = DistributionSummary.builder("jdbc.connections.per.request")
+                .description("Pool connections acquired while handling one request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ConnectionCountingDataSource.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            connectionsPerRequest.record(ConnectionCountingDataSource.acquiredByCurrentThread());
+            ConnectionCountingDataSource.reset();
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.example.config;
+
+import com.example.services.ReadYourWrites;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas in turn and everything else to the primary. The
+ * physical connection is only taken at the first statement, after the transaction manager marked
+ * the connection read-only, which is what makes {@code @Transactional(readOnly = true)} the switch.
+ * Reads pinned by {@link ReadYourWrites} stay on the primary.
+ */
+public class ReadReplicaDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+
+    private final List<? extends DataSource> replicas;
+
+    public ReadReplicaDataSource(DataSource primary, List<? extends DataSource> replicas) {
+        super(primary);
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        if (replicas.isEmpty()) {
+            return;
+        }
+        var routing = new ReplicaRouting(replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        routing.setTargetDataSources(targets);
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        setReadOnlyDataSource(routing);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static class ReplicaRouting extends AbstractRoutingDataSource {
+
+        private final int replicas;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        ReplicaRouting(int replicas) {
+            this.replicas = replicas;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (ReadYourWrites.pinnedToPrimary()) {
+                return PRIMARY;
+            }
+            return Math.floorMod(next.getAndIncrement(), replicas);
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.example.config;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.data.routing.DataAccessStrategy;
+import com.example.data.routing.RepositoryRouter;
+import com.example.data.routing.RepositoryRoutingEndpoint;
+import com.example.data.routing.RoutingApplicationUserRepository;
+import com.example.data.routing.RoutingPaymentRepository;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+@Configuration
+public class RepositoryRoutingConfig {
+
+    @Bean
+    @Primary
+    public ApplicationUserRepository routingApplicationUserRepository(RepositoryRouter router, BeanFactory beanFactory) {
+        return new RoutingApplicationUserRepository(router,
+                implementations(beanFactory, DataAccessStrategy::getUserRepositoryType));
+    }
+
+    @Bean
+    @Primary
+    public PaymentRepository routingPaymentRepository(RepositoryRouter router, BeanFactory beanFactory) {
+        return new RoutingPaymentRepository(router,
+                implementations(beanFactory, DataAccessStrategy::getPaymentRepositoryType));
+    }
+
+    @Bean
+    public RepositoryRoutingEndpoint repositoryRoutingEndpoint(RepositoryRouter router) {
+        return new RepositoryRoutingEndpoint(router);
+    }
+
+    private static <R> Map<DataAccessStrategy, R> implementations(BeanFactory beanFactory,
+                                                                  Function<DataAccessStrategy, Class<? extends R>> type) {
+        Map<DataAccessStrategy, R> implementations = new EnumMap<>(DataAccessStrategy.class);
+        for (DataAccessStrategy strategy : DataAccessStrategy.values()) {
+            implementations.put(strategy, beanFactory.getBean(type.apply(strategy)));
+        }
+        return implementations;
+    }
+
+}
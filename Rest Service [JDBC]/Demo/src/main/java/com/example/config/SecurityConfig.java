@@ -1,38 +1,51 @@
 package com.example.config;
 
-import com.example.data.ApplicationUserRepository;
+import com.example.security.AccessTokenAuthenticationFilter;
+import com.example.security.AccessTokenService;
+import com.example.security.CachingAuthenticationProvider;
+import com.example.security.VerifiedCredentialCache;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AccessTokenService accessTokenService)
+            throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .httpBasic(Customizer.withDefaults())
+                .addFilterBefore(new AccessTokenAuthenticationFilter(accessTokenService),
+                        BasicAuthenticationFilter.class)
                 .sessionManagement((session) -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/balance",
                                 "/api/payment",
                                 "/api/history",
+                                "/api/history/export",
+                                "/api/summary",
                                 "/api/edit").hasRole("USER")
                         .requestMatchers(
-                                "/api/registration"
-                            ).permitAll())
+                                "/api/registration",
+                                "/api/login",
+                                "/actuator/health"
+                            ).permitAll()
+                        .requestMatchers("/actuator/metrics/**").authenticated())
                 .build();
     }
 
@@ -42,11 +55,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    public UserDetailsService userDetailsService(ApplicationUserRepository repository) {
-        return username -> {
-                return repository.findByLogin(username)
-                        .orElseThrow(() -> new UsernameNotFoundException("Couldn't find user " + username));
-        };
+    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                         PasswordEncoder passwordEncoder,
+                                                         VerifiedCredentialCache credentialCache) {
+        return new CachingAuthenticationProvider(userDetailsService, passwordEncoder, credentialCache);
     }
 
 }
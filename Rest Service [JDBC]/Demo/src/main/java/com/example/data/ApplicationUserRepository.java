@@ -3,13 +3,20 @@ package com.example.data;
 import com.example.entities.ApplicationUser;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ApplicationUserRepository {
 
     Optional<ApplicationUser> findByLogin(String login);
 
+    Optional<ApplicationUser> findById(Long id);
+
+    void forEachLogin(Consumer<String> action);
+
     ApplicationUser save(ApplicationUser applicationUser);
 
     ApplicationUser update(ApplicationUser applicationUser);
 
+    Optional<Long> debit(Long id, long amount);
+
 }
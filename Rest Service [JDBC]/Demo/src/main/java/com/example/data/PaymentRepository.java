@@ -1,16 +1,39 @@
 package com.example.data;
 
+import com.example.api.dto.PaymentData;
 import com.example.entities.ApplicationUser;
 import com.example.entities.Payment;
 
 import org.springframework.data.domain.PageRequest;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface PaymentRepository {
 
-    List<Payment> findAllByUser(ApplicationUser user, PageRequest pageRequest);
+    /**
+     * Page of the user's payments with ids above {@code afterId} in id order; pass 0 for all of them.
+     */
+    List<PaymentData> findAllByUser(ApplicationUser user, long afterId, Date from, Date to, PageRequest pageRequest);
+
+    List<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit);
+
+    void forEachByUser(ApplicationUser user, Consumer<Payment> action);
+
+    List<PaymentSummaryRow> findSummaryByUser(ApplicationUser user);
+
+    long countByUser(ApplicationUser user);
 
     void save(Payment payment);
 
+    Optional<PaymentResult> debitAndSave(Payment payment);
+
+    /**
+     * Runs {@link #debitAndSave} for every payment as one JDBC batch. Element {@code i} of the result
+     * tells whether payment {@code i} was made; failures of the batch as a whole are thrown.
+     */
+    List<Boolean> debitAndSaveAll(List<Payment> payments);
+
 }
@@ -0,0 +1,4 @@
+package com.example.data;
+
+public record PaymentResult(Long paymentId, Long balance) {
+}
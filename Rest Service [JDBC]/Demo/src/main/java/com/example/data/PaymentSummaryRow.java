@@ -0,0 +1,4 @@
+package com.example.data;
+
+public record PaymentSummaryRow(String kind, String bucket, long totalAmount, long paymentCount) {
+}
@@ -0,0 +1,126 @@
+package com.example.data.archive;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Puts archived payments in front of the hot ones. The archive holds every payment up to its
+ * watermark, so a page is served from the archive until it runs out and completed from the
+ * delegate with rows above that watermark; rows the archiver has registered but not yet detached
+ * are skipped that way. Users without archived payments cost one directory lookup per segment
+ * covering their id.
+ */
+public class ArchivingPaymentRepository implements PaymentRepository {
+
+    private final PaymentRepository delegate;
+
+    private final ObjectProvider<PaymentArchive> archive;
+
+    public ArchivingPaymentRepository(PaymentRepository delegate, ObjectProvider<PaymentArchive> archive) {
+        this.delegate = delegate;
+        this.archive = archive;
+    }
+
+    @Override
+    public List<PaymentData> findAllByUser(ApplicationUser user, long afterId, Date from, Date to,
+                                           PageRequest pageRequest) {
+        int size = pageRequest.getPageSize();
+        PaymentArchive.Page archived = archive.getObject()
+                .find(user.getId(), afterId, from, to, pageRequest.getOffset(), size);
+        long hotAfterId = Math.max(afterId, archived.watermark());
+        if (archived.matched() == 0) {
+            return delegate.findAllByUser(user, hotAfterId, from, to, pageRequest);
+        }
+        if (archived.rows().isEmpty()) {
+            return delegate.findAllByUser(user, hotAfterId, from, to,
+                    new OffsetPageRequest(pageRequest.getOffset() - archived.matched(), size));
+        }
+        return withHotRows(user, archived.rows(), hotAfterId, from, to, size);
+    }
+
+    @Override
+    public List<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit) {
+        PaymentArchive.Page archived = archive.getObject().find(user.getId(), afterId, from, to, 0, limit);
+        long hotAfterId = Math.max(afterId, archived.watermark());
+        if (archived.rows().isEmpty()) {
+            return delegate.findAllByUserAfter(user, hotAfterId, from, to, limit);
+        }
+        return withHotRows(user, archived.rows(), hotAfterId, from, to, limit);
+    }
+
+    private List<PaymentData> withHotRows(ApplicationUser user, List<PaymentData> archived, long hotAfterId,
+                                          Date from, Date to, int limit) {
+        if (archived.size() >= limit) {
+            return archived;
+        }
+        List<PaymentData> page = new ArrayList<>(limit);
+        page.addAll(archived);
+        page.addAll(delegate.findAllByUserAfter(user, hotAfterId, from, to, limit - archived.size()));
+        return page;
+    }
+
+    @Override
+    public void forEachByUser(ApplicationUser user, Consumer<Payment> action) {
+        long watermark = archive.getObject().forEach(user, action);
+        delegate.forEachByUser(user, payment -> {
+            if (payment.getId() > watermark) {
+                action.accept(payment);
+            }
+        });
+    }
+
+    @Override
+    public List<PaymentSummaryRow> findSummaryByUser(ApplicationUser user) {
+        return delegate.findSummaryByUser(user);
+    }
+
+    @Override
+    public long countByUser(ApplicationUser user) {
+        return delegate.countByUser(user);
+    }
+
+    @Override
+    public void save(Payment payment) {
+        delegate.save(payment);
+    }
+
+    @Override
+    public Optional<PaymentResult> debitAndSave(Payment payment) {
+        return delegate.debitAndSave(payment);
+    }
+
+    @Override
+    public List<Boolean> debitAndSaveAll(List<Payment> payments) {
+        return delegate.debitAndSaveAll(payments);
+    }
+
+    private static final class OffsetPageRequest extends PageRequest {
+
+        private final long offset;
+
+        OffsetPageRequest(long offset, int size) {
+            super(0, size, Sort.by("id").ascending());
+            this.offset = offset;
+        }
+
+        @Override
+        public long getOffset() {
+            return offset;
+        }
+
+    }
+
+}
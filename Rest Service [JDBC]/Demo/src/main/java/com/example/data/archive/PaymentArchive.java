@@ -0,0 +1,208 @@
+package com.example.data.archive;
+
+import com.example.api.dto.PaymentData;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Payments moved out of the {@code payment} table by the archiver. Segments become visible once
+ * they are registered in {@code payment_archive_segment}; the registry is reloaded periodically to
+ * pick up segments registered by other instances, and the segment directory must be shared between
+ * them. The archive holds every payment up to its watermark, the largest registered
+ * {@code maxPaymentId}, while the hot table keeps those rows until the archiver detaches their
+ * partition a while later. Readers therefore take hot rows only above the watermark of the
+ * segments they read, which {@link Page#watermark()} and {@link #forEach} report, so a payment is
+ * never seen twice, and is never missed as long as instances reload within {@code detach-delay}.
+ */
+@Component
+public class PaymentArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentArchive.class);
+
+    String FIND_SEGMENTS_SQL = """
+                SELECT file_name, min_user_id, max_user_id, max_payment_id, row_count
+                FROM payment_archive_segment
+                ORDER BY max_payment_id, file_name
+                """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Path directory;
+
+    private volatile List<SegmentInfo> segments = List.of();
+
+    private final ConcurrentMap<String, Segment> openSegments = new ConcurrentHashMap<>();
+
+    public PaymentArchive(JdbcTemplate jdbcTemplate,
+                          @Value("${account.archive.directory:payment-archive}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Path.of(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${account.archive.refresh:PT1M}")
+    public void refresh() {
+        try {
+            List<SegmentInfo> registered = jdbcTemplate.query(FIND_SEGMENTS_SQL,
+                    (rs, rowNum) -> new SegmentInfo(
+                            rs.getString("file_name"),
+                            rs.getLong("min_user_id"),
+                            rs.getLong("max_user_id"),
+                            rs.getLong("max_payment_id"),
+                            rs.getLong("row_count")));
+            segments = List.copyOf(registered);
+            Set<String> names = registered.stream().map(SegmentInfo::fileName).collect(Collectors.toSet());
+            openSegments.keySet().retainAll(names);
+        } catch (DataAccessException e) {
+            log.warn("Could not load payment archive segments", e);
+        }
+    }
+
+    /**
+     * Archived payments of a user in id order, skipping the first {@code offset} matches.
+     * {@link Page#matched()} counts skipped and returned rows, so when fewer than {@code limit}
+     * rows come back it is the total number of archived matches.
+     */
+    Page find(long userId, long afterId, Date from, Date to, long offset, int limit) {
+        List<SegmentInfo> snapshot = segments;
+        if (limit <= 0) {
+            return new Page(List.of(), 0, watermark(snapshot));
+        }
+        var collector = new PageCollector(afterId,
+                from == null ? Long.MIN_VALUE : from.getTime(),
+                to == null ? Long.MAX_VALUE : to.getTime(),
+                offset, limit);
+        boolean unfiltered = afterId <= 0 && from == null && to == null;
+        for (SegmentInfo info : snapshot) {
+            if (userId < info.minUserId() || userId > info.maxUserId() || info.maxPaymentId() <= afterId) {
+                continue;
+            }
+            Segment segment = open(info);
+            int start = 0;
+            if (unfiltered) {
+                // Every row matches, so whole users and granules can be skipped without inflating them.
+                int rows = segment.rowCount(userId);
+                start = (int) Math.min(collector.toSkip, rows);
+                collector.toSkip -= start;
+                collector.matched += start;
+                if (start == rows) {
+                    continue;
+                }
+            }
+            if (!scan(info, segment, userId, start, collector)) {
+                break;
+            }
+        }
+        return new Page(collector.rows, collector.matched, watermark(snapshot));
+    }
+
+    /**
+     * Visits the archived payments of a user and returns the watermark of the segments visited.
+     */
+    long forEach(ApplicationUser user, Consumer<Payment> action) {
+        List<SegmentInfo> snapshot = segments;
+        for (SegmentInfo info : snapshot) {
+            if (user.getId() < info.minUserId() || user.getId() > info.maxUserId()) {
+                continue;
+            }
+            scan(info, open(info), user.getId(), 0, (id, dateMillis, phone, amount) -> {
+                action.accept(new Payment(id, new Timestamp(dateMillis), phone, amount, user));
+                return true;
+            });
+        }
+        return watermark(snapshot);
+    }
+
+    // The registry is ordered by maxPaymentId.
+    private static long watermark(List<SegmentInfo> segments) {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).maxPaymentId();
+    }
+
+    private boolean scan(SegmentInfo info, Segment segment, long userId, int start, Segment.RowVisitor visitor) {
+        try {
+            return segment.scan(userId, start, visitor);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not read payment archive segment " + info.fileName(), e);
+        }
+    }
+
+    private Segment open(SegmentInfo info) {
+        return openSegments.computeIfAbsent(info.fileName(), name -> {
+            try {
+                return Segment.open(directory.resolve(name));
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException("Could not open payment archive segment " + name, e);
+            }
+        });
+    }
+
+    record Page(List<PaymentData> rows, long matched, long watermark) {
+    }
+
+    private static final class PageCollector implements Segment.RowVisitor {
+
+        private final long afterId;
+
+        private final long fromMillis;
+
+        private final long toMillis;
+
+        private final int limit;
+
+        private final List<PaymentData> rows = new ArrayList<>();
+
+        private long toSkip;
+
+        private long matched;
+
+        PageCollector(long afterId, long fromMillis, long toMillis, long offset, int limit) {
+            this.afterId = afterId;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.toSkip = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean visit(long id, long dateMillis, String phone, long amount) {
+            if (id <= afterId || dateMillis < fromMillis || dateMillis >= toMillis) {
+                return true;
+            }
+            matched++;
+            if (toSkip > 0) {
+                toSkip--;
+                return true;
+            }
+            rows.add(new PaymentData(id, new Timestamp(dateMillis), phone, (double) amount / 100));
+            return rows.size() < limit;
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.example.data.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read side of a segment written by {@link SegmentWriter}. The file is memory-mapped; only the
+ * user directory and granule index are copied to the heap, granules are inflated on demand.
+ * Instances are immutable and safe to share between threads.
+ */
+final class Segment {
+
+    private final MappedByteBuffer buffer;
+
+    private final int rowCount;
+
+    private final long[] userIds;
+
+    private final int[] firstRows;
+
+    private final int[] userRowCounts;
+
+    private final long[] granuleOffsets;
+
+    private final int[] compressedLengths;
+
+    private final int[] rawLengths;
+
+    private Segment(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int footer = buffer.limit() - SegmentWriter.FOOTER_BYTES;
+        if (footer < 0 || buffer.getInt(footer + 20) != SegmentWriter.MAGIC) {
+            throw new IOException("Not a payment archive segment");
+        }
+        int directoryOffset = (int) buffer.getLong(footer);
+        int indexOffset = (int) buffer.getLong(footer + 8);
+        this.rowCount = buffer.getInt(footer + 16);
+
+        int users = buffer.getInt(directoryOffset);
+        this.userIds = new long[users];
+        this.firstRows = new int[users];
+        this.userRowCounts = new int[users];
+        int position = directoryOffset + Integer.BYTES;
+        for (int i = 0; i < users; i++, position += 16) {
+            userIds[i] = buffer.getLong(position);
+            firstRows[i] = buffer.getInt(position + 8);
+            userRowCounts[i] = buffer.getInt(position + 12);
+        }
+
+        int granules = buffer.getInt(indexOffset);
+        this.granuleOffsets = new long[granules];
+        this.compressedLengths = new int[granules];
+        this.rawLengths = new int[granules];
+        position = indexOffset + Integer.BYTES;
+        for (int i = 0; i < granules; i++, position += 16) {
+            granuleOffsets[i] = buffer.getLong(position);
+            compressedLengths[i] = buffer.getInt(position + 8);
+            rawLengths[i] = buffer.getInt(position + 12);
+        }
+    }
+
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    int rowCount(long userId) {
+        int user = Arrays.binarySearch(userIds, userId);
+        return user < 0 ? 0 : userRowCounts[user];
+    }
+
+    /**
+     * Visits the rows of a user in id order, starting at the user's {@code fromRow}-th row.
+     *
+     * @return {@code false} if the visitor stopped the scan
+     */
+    boolean scan(long userId, int fromRow, RowVisitor visitor) throws IOException {
+        int user = Arrays.binarySearch(userIds, userId);
+        if (user < 0) {
+            return true;
+        }
+        int first = firstRows[user] + fromRow;
+        int end = firstRows[user] + userRowCounts[user];
+        for (int granule = first / SegmentWriter.GRANULE_ROWS; first < end; granule++) {
+            int granuleStart = granule * SegmentWriter.GRANULE_ROWS;
+            int granuleRows = Math.min(SegmentWriter.GRANULE_ROWS, rowCount - granuleStart);
+            ByteBuffer raw = inflate(granule);
+            long[] ids = new long[granuleRows];
+            long[] dates = new long[granuleRows];
+            long[] amounts = new long[granuleRows];
+            long previous = 0;
+            for (int i = 0; i < granuleRows; i++) {
+                ids[i] = previous += Varints.read(raw);
+            }
+            previous = 0;
+            for (int i = 0; i < granuleRows; i++) {
+                dates[i] = previous += Varints.read(raw);
+            }
+            for (int i = 0; i < granuleRows; i++) {
+                amounts[i] = Varints.read(raw);
+            }
+            int last = Math.min(end, granuleStart + granuleRows);
+            for (int i = 0; granuleStart + i < last; i++) {
+                int length = (int) Varints.read(raw);
+                if (granuleStart + i < first) {
+                    raw.position(raw.position() + length);
+                    continue;
+                }
+                String phone = new String(raw.array(), raw.position(), length, StandardCharsets.UTF_8);
+                raw.position(raw.position() + length);
+                if (!visitor.visit(ids[i], dates[i], phone, amounts[i])) {
+                    return false;
+                }
+            }
+            first = last;
+        }
+        return true;
+    }
+
+    private ByteBuffer inflate(int granule) throws IOException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) granuleOffsets[granule], compressedLengths[granule]));
+            byte[] raw = new byte[rawLengths[granule]];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated payment archive granule " + granule);
+                }
+                length += inflated;
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt payment archive granule " + granule, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    interface RowVisitor {
+
+        boolean visit(long id, long dateMillis, String phone, long amount);
+
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.example.data.archive;
+
+/**
+ * Registry entry of a segment file. Segments of one archiver run hold payments with ids in
+ * {@code (previous run's maxPaymentId, maxPaymentId]}, so ordering segments by
+ * {@code maxPaymentId} orders their payments by id.
+ */
+public record SegmentInfo(String fileName, long minUserId, long maxUserId, long maxPaymentId, long rowCount) {
+}
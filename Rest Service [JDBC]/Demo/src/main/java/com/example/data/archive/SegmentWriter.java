@@ -0,0 +1,201 @@
+package com.example.data.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+
+/**
+ * Writes one append-only segment of archived payments. Rows must be appended ordered by user and
+ * id. Every {@link #GRANULE_ROWS} rows form a granule, stored column by column (id deltas, date
+ * deltas, amounts, phones) and deflated on its own, so a reader only inflates the granules it needs.
+ * <p>
+ * Layout: granules, then the user directory ({@code userId, firstRow, rowCount} per user), then the
+ * sparse granule index ({@code offset, compressedLength, rawLength} per granule), then a footer
+ * with both offsets, the row count and {@link #MAGIC}. The file is written under a temporary name
+ * and moved into place by {@link #finish}, so a readable segment is always complete.
+ */
+public final class SegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x50534731;
+
+    static final int GRANULE_ROWS = 256;
+
+    static final int FOOTER_BYTES = 24;
+
+    private final Path path;
+
+    private final Path temporary;
+
+    private final FileChannel channel;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+    private final long[] ids = new long[GRANULE_ROWS];
+
+    private final long[] dates = new long[GRANULE_ROWS];
+
+    private final long[] amounts = new long[GRANULE_ROWS];
+
+    private final String[] phones = new String[GRANULE_ROWS];
+
+    private int pending;
+
+    private final ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream directory = new DataOutputStream(directoryBytes);
+
+    private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream index = new DataOutputStream(indexBytes);
+
+    private int userCount;
+
+    private int granuleCount;
+
+    private long currentUserId;
+
+    private int currentUserFirstRow;
+
+    private int rowCount;
+
+    private long minUserId;
+
+    private long lastId;
+
+    private boolean finished;
+
+    public SegmentWriter(Path path) throws IOException {
+        this.path = path;
+        this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getCurrentUserId() {
+        return currentUserId;
+    }
+
+    public void append(long userId, long id, long dateMillis, String phone, long amount) throws IOException {
+        if (rowCount == 0) {
+            minUserId = userId;
+            currentUserId = userId;
+        } else if (userId < currentUserId || (userId == currentUserId && id <= lastId)) {
+            throw new IllegalArgumentException("Rows must be appended ordered by user and id");
+        } else if (userId != currentUserId) {
+            endUser();
+            currentUserId = userId;
+            currentUserFirstRow = rowCount;
+        }
+        ids[pending] = id;
+        dates[pending] = dateMillis;
+        amounts[pending] = amount;
+        phones[pending] = phone;
+        pending++;
+        rowCount++;
+        lastId = id;
+        if (pending == GRANULE_ROWS) {
+            flushGranule();
+        }
+    }
+
+    public SegmentInfo finish(long maxPaymentId) throws IOException {
+        if (rowCount == 0) {
+            throw new IllegalStateException("Segment is empty");
+        }
+        endUser();
+        flushGranule();
+        long directoryOffset = channel.position();
+        write(ByteBuffer.allocate(Integer.BYTES).putInt(0, userCount));
+        write(ByteBuffer.wrap(directoryBytes.toByteArray()));
+        long indexOffset = channel.position();
+        write(ByteBuffer.allocate(Integer.BYTES).putInt(0, granuleCount));
+        write(ByteBuffer.wrap(indexBytes.toByteArray()));
+        write(ByteBuffer.allocate(FOOTER_BYTES)
+                .putLong(directoryOffset)
+                .putLong(indexOffset)
+                .putInt(rowCount)
+                .putInt(MAGIC)
+                .flip());
+        channel.force(true);
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+        return new SegmentInfo(path.getFileName().toString(), minUserId, currentUserId, maxPaymentId, rowCount);
+    }
+
+    private void endUser() throws IOException {
+        directory.writeLong(currentUserId);
+        directory.writeInt(currentUserFirstRow);
+        directory.writeInt(rowCount - currentUserFirstRow);
+        userCount++;
+    }
+
+    private void flushGranule() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        var raw = new ByteArrayOutputStream(pending * 16);
+        long previous = 0;
+        for (int i = 0; i < pending; i++) {
+            Varints.write(raw, ids[i] - previous);
+            previous = ids[i];
+        }
+        previous = 0;
+        for (int i = 0; i < pending; i++) {
+            Varints.write(raw, dates[i] - previous);
+            previous = dates[i];
+        }
+        for (int i = 0; i < pending; i++) {
+            Varints.write(raw, amounts[i]);
+        }
+        for (int i = 0; i < pending; i++) {
+            byte[] phone = phones[i].getBytes(StandardCharsets.UTF_8);
+            Varints.write(raw, phone.length);
+            raw.write(phone);
+        }
+        byte[] input = raw.toByteArray();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        var compressed = new ByteArrayOutputStream(input.length / 2 + 64);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        index.writeLong(channel.position());
+        index.writeInt(compressed.size());
+        index.writeInt(input.length);
+        granuleCount++;
+        write(ByteBuffer.wrap(compressed.toByteArray()));
+        pending = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.example.data.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Zigzag LEB128 encoding used for the numeric columns of a segment. Ids and dates are stored as
+ * deltas, so most values fit in one or two bytes.
+ */
+final class Varints {
+
+    private Varints() {
+    }
+
+    static void write(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    static long read(ByteBuffer in) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+}
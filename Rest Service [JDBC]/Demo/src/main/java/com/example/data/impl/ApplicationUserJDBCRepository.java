@@ -2,51 +2,60 @@ package com.example.data.impl;
 
 import com.example.data.ApplicationUserRepository;
 import com.example.entities.ApplicationUser;
-import com.example.entities.Gender;
-import org.springframework.context.annotation.Primary;
+import com.example.entities.ApplicationUserRows;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
-@Primary
 public class ApplicationUserJDBCRepository implements ApplicationUserRepository {
 
     private final DataSource dataSource;
 
     public ApplicationUserJDBCRepository(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this.dataSource = new TransactionAwareDataSourceProxy(dataSource);
     }
 
     @Override
     public Optional<ApplicationUser> findByLogin(String login) {
         String sql = """
-                SELECT  id, login, password, balance, first_name, last_name, patronymic, email, gender, birthday
+                SELECT %s
                 FROM application_user
                 WHERE login = ?
-                """;
+                """.formatted(ApplicationUserRows.COLUMNS);
 
         try (Connection connection = dataSource.getConnection();
                 PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, login);
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
-                    ApplicationUser user = new ApplicationUser();
-                    user.setId(resultSet.getLong("id"));
-                    user.setLogin(resultSet.getString("login"));
-                    user.setPassword(resultSet.getString("password"));
-                    user.setBalance(resultSet.getLong("balance"));
-                    user.setFirstName(resultSet.getString("first_name"));
-                    user.setLastName(resultSet.getString("last_name"));
-                    user.setPatronymic(resultSet.getString("patronymic"));
-                    user.setEmail(resultSet.getString("email"));
-                    String genderValue = resultSet.getString("gender");
-                    if (genderValue != null)
-                        user.setGender(Gender.valueOf(genderValue));
-                    user.setBirthday(resultSet.getDate("birthday"));
-                    return Optional.of(user);
+                    return Optional.of(ApplicationUserRows.map(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ApplicationUser> findById(Long id) {
+        String sql = """
+                SELECT %s
+                FROM application_user
+                WHERE id = ?
+                """.formatted(ApplicationUserRows.COLUMNS);
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(ApplicationUserRows.map(resultSet));
                 }
             }
         } catch (SQLException e) {
@@ -55,25 +64,36 @@ public class ApplicationUserJDBCRepository implements ApplicationUserRepository
         return Optional.empty();
     }
 
+    @Override
+    public void forEachLogin(Consumer<String> action) {
+        String sql = """
+                SELECT login FROM application_user
+                """;
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(1000);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    action.accept(resultSet.getString("login"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public ApplicationUser save(ApplicationUser applicationUser) {
         String sql = """
                 INSERT INTO application_user
-                    (login, password, balance, first_name, last_name, patronymic, email, gender, birthday)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
+                    (%s)
+                VALUES (%s)
+                """.formatted(ApplicationUserRows.INSERT_COLUMNS, ApplicationUserRows.INSERT_VALUES);
 
         try (Connection connection = dataSource.getConnection();
                 PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, applicationUser.getLogin());
-            statement.setString(2, applicationUser.getPassword());
-            statement.setLong(3, applicationUser.getBalance());
-            statement.setString(4, applicationUser.getFirstName());
-            statement.setString(5, applicationUser.getLastName());
-            statement.setString(6, applicationUser.getPatronymic());
-            statement.setString(7, applicationUser.getEmail());
-            statement.setObject(8, applicationUser.getGender(), Types.OTHER);
-            statement.setDate(9, applicationUser.getBirthday());
+            ApplicationUserRows.bindInsert(statement, 1, applicationUser);
             statement.execute();
 
             try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
@@ -91,20 +111,13 @@ public class ApplicationUserJDBCRepository implements ApplicationUserRepository
     public ApplicationUser update(ApplicationUser applicationUser) {
         String sql = """
                 UPDATE application_user
-                SET balance = ?, first_name = ?, last_name = ?, patronymic = ?, email = ?, gender = ?, birthday = ?
+                SET %s
                 WHERE id = ?
-                """;
+                """.formatted(ApplicationUserRows.UPDATE_SET);
 
         try (Connection connection = dataSource.getConnection();
                 PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setLong(1, applicationUser.getBalance());
-            statement.setString(2, applicationUser.getFirstName());
-            statement.setString(3, applicationUser.getLastName());
-            statement.setString(4, applicationUser.getPatronymic());
-            statement.setString(5, applicationUser.getEmail());
-            statement.setObject(6, applicationUser.getGender(), Types.OTHER);
-            statement.setDate(7, applicationUser.getBirthday());
-            statement.setLong(8, applicationUser.getId());
+            ApplicationUserRows.bindUpdate(statement, 1, applicationUser);
             statement.execute();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -112,4 +125,29 @@ public class ApplicationUserJDBCRepository implements ApplicationUserRepository
         return applicationUser;
     }
 
+    @Override
+    public Optional<Long> debit(Long id, long amount) {
+        String sql = """
+                UPDATE application_user
+                SET balance = balance - ?
+                WHERE id = ? AND balance >= ?
+                RETURNING balance
+                """;
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, amount);
+            statement.setLong(2, id);
+            statement.setLong(3, amount);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(resultSet.getLong("balance"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
 }
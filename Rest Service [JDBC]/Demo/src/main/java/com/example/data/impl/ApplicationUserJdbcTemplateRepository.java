@@ -2,9 +2,9 @@ package com.example.data.impl;
 
 import com.example.data.ApplicationUserRepository;
 import com.example.entities.ApplicationUser;
-import com.example.entities.Gender;
+import com.example.entities.ApplicationUserRows;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
@@ -12,26 +12,44 @@ import org.springframework.stereotype.Repository;
 import java.sql.*;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
-public class ApplicationUserJdbcTemplateRepository implements ApplicationUserRepository, RowMapper<ApplicationUser> {
+public class ApplicationUserJdbcTemplateRepository implements ApplicationUserRepository {
 
     String FIND_USER_BY_LOGIN_SQL = """
-                SELECT  id, login, password, balance, first_name, last_name, patronymic, email, gender, birthday
+                SELECT %s
                 FROM application_user
                 WHERE login = ?
+                """.formatted(ApplicationUserRows.COLUMNS);
+
+    String FIND_USER_BY_ID_SQL = """
+                SELECT %s
+                FROM application_user
+                WHERE id = ?
+                """.formatted(ApplicationUserRows.COLUMNS);
+
+    String FIND_ALL_LOGINS_SQL = """
+                SELECT login FROM application_user
                 """;
 
     String SAVE_NEW_USER_SQL = """
                 INSERT INTO application_user
-                    (login, password, balance, first_name, last_name, patronymic, email, gender, birthday)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
+                    (%s)
+                VALUES (%s)
+                """.formatted(ApplicationUserRows.INSERT_COLUMNS, ApplicationUserRows.INSERT_VALUES);
 
     String UPDATE_NEW_USER_SQL = """
                 UPDATE application_user
-                SET balance = ?, first_name = ?, last_name = ?, patronymic = ?, email = ?, gender = ?, birthday = ?
+                SET %s
                 WHERE id = ?
+                """.formatted(ApplicationUserRows.UPDATE_SET);
+
+    String DEBIT_BALANCE_SQL = """
+                UPDATE application_user
+                SET balance = balance - ?
+                WHERE id = ? AND balance >= ?
+                RETURNING balance
                 """;
 
     private final JdbcTemplate jdbcTemplate;
@@ -42,12 +60,25 @@ public class ApplicationUserJdbcTemplateRepository implements ApplicationUserRep
 
     @Override
     public Optional<ApplicationUser> findByLogin(String login) {
-        List<ApplicationUser> results = jdbcTemplate.query(FIND_USER_BY_LOGIN_SQL, this, login);
+        List<ApplicationUser> results = jdbcTemplate.query(FIND_USER_BY_LOGIN_SQL, ApplicationUserRows.ROW_MAPPER, login);
         return results.size() == 0 ?
                 Optional.empty() :
                 Optional.of(results.get(0));
     }
 
+    @Override
+    public Optional<ApplicationUser> findById(Long id) {
+        List<ApplicationUser> results = jdbcTemplate.query(FIND_USER_BY_ID_SQL, ApplicationUserRows.ROW_MAPPER, id);
+        return results.size() == 0 ?
+                Optional.empty() :
+                Optional.of(results.get(0));
+    }
+
+    @Override
+    public void forEachLogin(Consumer<String> action) {
+        jdbcTemplate.query(FIND_ALL_LOGINS_SQL, (RowCallbackHandler) rs -> action.accept(rs.getString("login")));
+    }
+
     @Override
     public ApplicationUser save(ApplicationUser applicationUser) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -55,21 +86,13 @@ public class ApplicationUserJdbcTemplateRepository implements ApplicationUserRep
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection
                     .prepareStatement(SAVE_NEW_USER_SQL, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, applicationUser.getLogin());
-            ps.setString(2, applicationUser.getPassword());
-            ps.setLong(3, applicationUser.getBalance());
-            ps.setString(4, applicationUser.getFirstName());
-            ps.setString(5, applicationUser.getLastName());
-            ps.setString(6, applicationUser.getPatronymic());
-            ps.setString(7, applicationUser.getEmail());
-            ps.setObject(8, applicationUser.getGender(), Types.OTHER);
-            ps.setDate(9, applicationUser.getBirthday());
+            ApplicationUserRows.bindInsert(ps, 1, applicationUser);
             return ps;
         }, keyHolder);
 
         long newId;
         if (keyHolder.getKeys().size() > 1) {
-            newId = ((Integer)keyHolder.getKeys().get("id")).longValue();
+            newId = ((Number)keyHolder.getKeys().get("id")).longValue();
         } else {
             newId = keyHolder.getKey().longValue();
         }
@@ -80,49 +103,17 @@ public class ApplicationUserJdbcTemplateRepository implements ApplicationUserRep
 
     @Override
     public ApplicationUser update(ApplicationUser applicationUser) {
-        Object[] params = new Object[] {
-                applicationUser.getBalance(),
-                applicationUser.getFirstName(),
-                applicationUser.getLastName(),
-                applicationUser.getPatronymic(),
-                applicationUser.getEmail(),
-                applicationUser.getGender(),
-                applicationUser.getBirthday(),
-                applicationUser.getId()
-        };
-        int [] types = new int[] {
-                Types.BIGINT,
-                Types.VARCHAR,
-                Types.VARCHAR,
-                Types.VARCHAR,
-                Types.VARCHAR,
-                Types.OTHER,
-                Types.DATE,
-                Types.BIGINT
-        };
-        jdbcTemplate.update(UPDATE_NEW_USER_SQL, params, types);
+        jdbcTemplate.update(UPDATE_NEW_USER_SQL, ps -> ApplicationUserRows.bindUpdate(ps, 1, applicationUser));
 
         return  applicationUser;
     }
 
     @Override
-    public ApplicationUser mapRow(ResultSet rs, int rowNum) throws SQLException {
-        var applicationUser = new ApplicationUser();
-
-        applicationUser.setId(rs.getLong("id"));
-        applicationUser.setLogin(rs.getString("login"));
-        applicationUser.setPassword(rs.getString("password"));
-        applicationUser.setBalance(rs.getLong("balance"));
-        applicationUser.setFirstName(rs.getString("first_name"));
-        applicationUser.setLastName(rs.getString("last_name"));
-        applicationUser.setPatronymic(rs.getString("patronymic"));
-        applicationUser.setEmail(rs.getString("email"));
-        String genderValue = rs.getString("gender");
-        if (genderValue != null)
-            applicationUser.setGender(Gender.valueOf(genderValue));
-        applicationUser.setBirthday(rs.getDate("birthday"));
-
-        return applicationUser;
+    public Optional<Long> debit(Long id, long amount) {
+        List<Long> results = jdbcTemplate.query(DEBIT_BALANCE_SQL, (rs, rowNum) -> rs.getLong("balance"), amount, id, amount);
+        return results.size() == 0 ?
+                Optional.empty() :
+                Optional.of(results.get(0));
     }
 
 }
@@ -2,8 +2,8 @@ package com.example.data.impl;
 
 import com.example.data.ApplicationUserRepository;
 import com.example.entities.ApplicationUser;
-import com.example.entities.Gender;
-import org.springframework.jdbc.core.RowMapper;
+import com.example.entities.ApplicationUserRows;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -13,14 +13,25 @@ import org.springframework.stereotype.Repository;
 import java.sql.*;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
-public class ApplicationUserNamedParameterJdbcTemplateRepository implements ApplicationUserRepository, RowMapper<ApplicationUser> {
+public class ApplicationUserNamedParameterJdbcTemplateRepository implements ApplicationUserRepository {
 
     String FIND_USER_BY_LOGIN_SQL = """
-                SELECT  id, login, password, balance, first_name, last_name, patronymic, email, gender, birthday
+                SELECT %s
                 FROM application_user
                 WHERE login = :login
+                """.formatted(ApplicationUserRows.COLUMNS);
+
+    String FIND_USER_BY_ID_SQL = """
+                SELECT %s
+                FROM application_user
+                WHERE id = :id
+                """.formatted(ApplicationUserRows.COLUMNS);
+
+    String FIND_ALL_LOGINS_SQL = """
+                SELECT login FROM application_user
                 """;
 
     String SAVE_NEW_USER_SQL = """
@@ -31,11 +42,18 @@ public class ApplicationUserNamedParameterJdbcTemplateRepository implements Appl
 
     String UPDATE_NEW_USER_SQL = """
                 UPDATE application_user
-                SET balance = :balance, first_name = :first_name, last_name = :last_name,
+                SET first_name = :first_name, last_name = :last_name,
                     patronymic = :patronymic, email = :email, gender = :gender, birthday = :birthday
                 WHERE id = :id
                 """;
 
+    String DEBIT_BALANCE_SQL = """
+                UPDATE application_user
+                SET balance = balance - :amount
+                WHERE id = :id AND balance >= :amount
+                RETURNING balance
+                """;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
 
     public ApplicationUserNamedParameterJdbcTemplateRepository(NamedParameterJdbcTemplate jdbcTemplate) {
@@ -47,33 +65,39 @@ public class ApplicationUserNamedParameterJdbcTemplateRepository implements Appl
         MapSqlParameterSource namedParameters = new MapSqlParameterSource();
         namedParameters.addValue("login", login);
 
-        List<ApplicationUser> results = jdbcTemplate.query(FIND_USER_BY_LOGIN_SQL, namedParameters, this);
+        List<ApplicationUser> results = jdbcTemplate.query(FIND_USER_BY_LOGIN_SQL, namedParameters, ApplicationUserRows.ROW_MAPPER);
+
+        return results.size() == 0 ?
+                Optional.empty() :
+                Optional.of(results.get(0));
+    }
+
+    @Override
+    public Optional<ApplicationUser> findById(Long id) {
+        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
+        namedParameters.addValue("id", id);
+
+        List<ApplicationUser> results = jdbcTemplate.query(FIND_USER_BY_ID_SQL, namedParameters, ApplicationUserRows.ROW_MAPPER);
 
         return results.size() == 0 ?
                 Optional.empty() :
                 Optional.of(results.get(0));
     }
 
+    @Override
+    public void forEachLogin(Consumer<String> action) {
+        jdbcTemplate.getJdbcOperations().query(FIND_ALL_LOGINS_SQL, (RowCallbackHandler) rs -> action.accept(rs.getString("login")));
+    }
+
     @Override
     public ApplicationUser save(ApplicationUser applicationUser) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
-        namedParameters.addValue("login", applicationUser.getLogin());
-        namedParameters.addValue("password", applicationUser.getPassword());
-        namedParameters.addValue("balance", applicationUser.getBalance());
-        namedParameters.addValue("first_name", applicationUser.getFirstName());
-        namedParameters.addValue("last_name", applicationUser.getLastName());
-        namedParameters.addValue("patronymic", applicationUser.getPatronymic());
-        namedParameters.addValue("email", applicationUser.getEmail());
-        namedParameters.addValue("gender", applicationUser.getGender(), Types.OTHER);
-        namedParameters.addValue("birthday", applicationUser.getBirthday());
-
-        jdbcTemplate.update(SAVE_NEW_USER_SQL, namedParameters, keyHolder);
+        jdbcTemplate.update(SAVE_NEW_USER_SQL, ApplicationUserRows.parameters(applicationUser), keyHolder);
 
         long newId;
         if (keyHolder.getKeys().size() > 1) {
-            newId = ((Integer)keyHolder.getKeys().get("id")).longValue();
+            newId = ((Number)keyHolder.getKeys().get("id")).longValue();
         } else {
             newId = keyHolder.getKey().longValue();
         }
@@ -84,39 +108,22 @@ public class ApplicationUserNamedParameterJdbcTemplateRepository implements Appl
 
     @Override
     public ApplicationUser update(ApplicationUser applicationUser) {
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
-        namedParameters.addValue("id", applicationUser.getId());
-        namedParameters.addValue("balance", applicationUser.getBalance());
-        namedParameters.addValue("first_name", applicationUser.getFirstName());
-        namedParameters.addValue("last_name", applicationUser.getLastName());
-        namedParameters.addValue("patronymic", applicationUser.getPatronymic());
-        namedParameters.addValue("email", applicationUser.getEmail());
-        namedParameters.addValue("gender", applicationUser.getGender(), Types.OTHER);
-        namedParameters.addValue("birthday", applicationUser.getBirthday());
-
-        jdbcTemplate.update(UPDATE_NEW_USER_SQL, namedParameters);
+        jdbcTemplate.update(UPDATE_NEW_USER_SQL, ApplicationUserRows.parameters(applicationUser));
 
         return applicationUser;
     }
 
     @Override
-    public ApplicationUser mapRow(ResultSet rs, int rowNum) throws SQLException {
-        var applicationUser = new ApplicationUser();
-
-        applicationUser.setId(rs.getLong("id"));
-        applicationUser.setLogin(rs.getString("login"));
-        applicationUser.setPassword(rs.getString("password"));
-        applicationUser.setBalance(rs.getLong("balance"));
-        applicationUser.setFirstName(rs.getString("first_name"));
-        applicationUser.setLastName(rs.getString("last_name"));
-        applicationUser.setPatronymic(rs.getString("patronymic"));
-        applicationUser.setEmail(rs.getString("email"));
-        String genderValue = rs.getString("gender");
-        if (genderValue != null)
-            applicationUser.setGender(Gender.valueOf(genderValue));
-        applicationUser.setBirthday(rs.getDate("birthday"));
+    public Optional<Long> debit(Long id, long amount) {
+        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
+        namedParameters.addValue("id", id);
+        namedParameters.addValue("amount", amount);
 
-        return applicationUser;
+        List<Long> results = jdbcTemplate.query(DEBIT_BALANCE_SQL, namedParameters, (rs, rowNum) -> rs.getLong("balance"));
+
+        return results.size() == 0 ?
+                Optional.empty() :
+                Optional.of(results.get(0));
     }
 
 }
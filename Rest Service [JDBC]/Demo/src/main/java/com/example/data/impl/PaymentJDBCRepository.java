@@ -1,79 +1,277 @@
 package com.example.data.impl;
 
+import com.example.api.dto.PaymentData;
 import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
 import com.example.entities.ApplicationUser;
 import com.example.entities.Payment;
-import org.springframework.context.annotation.Primary;
+import com.example.entities.PaymentRows;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
-@Primary
 public class PaymentJDBCRepository implements PaymentRepository {
 
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String DEBIT_AND_ADD_PAYMENT_CTE = """
+                WITH debited AS (
+                    UPDATE application_user
+                    SET balance = balance - ?,
+                        payment_count = payment_count + 1
+                    WHERE id = ? AND balance >= ?
+                    RETURNING id, balance
+                ), inserted AS (
+                    INSERT INTO payment
+                        (date, phone, amount, user_id)
+                    SELECT CAST(? AS TIMESTAMP), CAST(? AS VARCHAR), CAST(? AS BIGINT), id FROM debited
+                    RETURNING id, user_id, date, phone, amount
+                )
+                """;
+
+    private static final String SUMMARIZE_PAYMENT_SQL = """
+                INSERT INTO payment_summary
+                    (user_id, kind, bucket, total_amount, payment_count)
+                SELECT inserted.user_id, bucket.kind, bucket.name, inserted.amount, 1
+                FROM inserted CROSS JOIN LATERAL (VALUES
+                    ('DAY', to_char(inserted.date, 'YYYY-MM-DD')),
+                    ('MONTH', to_char(inserted.date, 'YYYY-MM')),
+                    ('PHONE', inserted.phone)
+                ) AS bucket (kind, name)
+                ON CONFLICT (user_id, kind, bucket) DO UPDATE
+                SET total_amount = payment_summary.total_amount + EXCLUDED.total_amount,
+                    payment_count = payment_summary.payment_count + 1
+                """;
+
     private final DataSource dataSource;
 
     public PaymentJDBCRepository(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this.dataSource = new TransactionAwareDataSourceProxy(dataSource);
     }
 
     @Override
-    public List<Payment> findAllByUser(ApplicationUser user, PageRequest pageRequest) {
+    public List<PaymentData> findAllByUser(ApplicationUser user, long afterId, Date from, Date to,
+                                           PageRequest pageRequest) {
         String sql = """
-                SELECT * FROM payment
-                WHERE user_id = ?
+                SELECT %s FROM payment
+                WHERE user_id = ? AND id > ?
+                  AND date >= COALESCE(CAST(? AS TIMESTAMP), '-infinity')
+                  AND date < COALESCE(CAST(? AS TIMESTAMP), 'infinity')
+                ORDER BY id
                 LIMIT ? OFFSET ?
-                """;
+                """.formatted(PaymentRows.COLUMNS);
 
         try (Connection connection = dataSource.getConnection();
                 PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setLong(1, user.getId());
-            statement.setLong(2, pageRequest.getPageSize());
-            statement.setLong(3, pageRequest.getOffset());
+            statement.setLong(2, afterId);
+            statement.setTimestamp(3, toTimestamp(from));
+            statement.setTimestamp(4, toTimestamp(to));
+            statement.setLong(5, pageRequest.getPageSize());
+            statement.setLong(6, pageRequest.getOffset());
             try (ResultSet resultSet = statement.executeQuery()) {
-                List<Payment> payments = new ArrayList<>();
+                List<PaymentData> payments = new ArrayList<>();
                 while (resultSet.next()) {
-                    Payment payment = new Payment(
-                            resultSet.getLong("id"),
-                            resultSet.getTimestamp("date"),
-                            resultSet.getString("phone"),
-                            resultSet.getLong("amount"),
-                            user
-                    );
-                    payments.add(payment);
+                    payments.add(new PaymentData(
+                            resultSet.getLong(PaymentRows.ID),
+                            resultSet.getTimestamp(PaymentRows.DATE),
+                            resultSet.getString(PaymentRows.PHONE),
+                            (double) resultSet.getLong(PaymentRows.AMOUNT) / 100
+                    ));
                 }
                 return payments;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataAccessResourceFailureException("Payment history of user " + user.getId() + " failed", e);
+        }
+    }
+
+    @Override
+    public List<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit) {
+        String sql = """
+                SELECT %s FROM payment
+                WHERE user_id = ? AND id > ?
+                  AND date >= COALESCE(CAST(? AS TIMESTAMP), '-infinity')
+                  AND date < COALESCE(CAST(? AS TIMESTAMP), 'infinity')
+                ORDER BY id
+                LIMIT ?
+                """.formatted(PaymentRows.COLUMNS);
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, user.getId());
+            statement.setLong(2, afterId);
+            statement.setTimestamp(3, toTimestamp(from));
+            statement.setTimestamp(4, toTimestamp(to));
+            statement.setInt(5, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                List<PaymentData> payments = new ArrayList<>();
+                while (resultSet.next()) {
+                    payments.add(new PaymentData(
+                            resultSet.getLong(PaymentRows.ID),
+                            resultSet.getTimestamp(PaymentRows.DATE),
+                            resultSet.getString(PaymentRows.PHONE),
+                            (double) resultSet.getLong(PaymentRows.AMOUNT) / 100
+                    ));
+                }
+                return payments;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Payment history of user " + user.getId() + " failed", e);
+        }
+    }
+
+    @Override
+    public void forEachByUser(ApplicationUser user, Consumer<Payment> action) {
+        String sql = """
+                SELECT %s FROM payment
+                WHERE user_id = ?
+                ORDER BY id
+                """.formatted(PaymentRows.COLUMNS);
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            statement.setLong(1, user.getId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Payment payment = PaymentRows.map(resultSet);
+                    payment.setUser(user);
+                    action.accept(payment);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Payment export of user " + user.getId() + " failed", e);
+        }
+    }
+
+    @Override
+    public List<PaymentSummaryRow> findSummaryByUser(ApplicationUser user) {
+        String sql = """
+                SELECT kind, bucket, total_amount, payment_count FROM payment_summary
+                WHERE user_id = ?
+                ORDER BY kind, bucket
+                """;
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, user.getId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                List<PaymentSummaryRow> rows = new ArrayList<>();
+                while (resultSet.next()) {
+                    rows.add(new PaymentSummaryRow(
+                            resultSet.getString("kind"),
+                            resultSet.getString("bucket"),
+                            resultSet.getLong("total_amount"),
+                            resultSet.getLong("payment_count")
+                    ));
+                }
+                return rows;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Payment summary of user " + user.getId() + " failed", e);
+        }
+    }
+
+    @Override
+    public long countByUser(ApplicationUser user) {
+        String sql = """
+                SELECT payment_count FROM application_user
+                WHERE id = ?
+                """;
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, user.getId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("payment_count") : 0;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Payment count of user " + user.getId() + " failed", e);
         }
-        return Collections.emptyList();
     }
 
     @Override
     public void save(Payment payment) {
         String sql = """
                 INSERT INTO payment
-                    (date, phone, amount, user_id)
-                VALUES (?, ?, ?, ?)
-                """;
+                    (%s)
+                VALUES (%s)
+                """.formatted(PaymentRows.INSERT_COLUMNS, PaymentRows.INSERT_VALUES);
 
         try (Connection connection = dataSource.getConnection();
                 PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
-            statement.setString(2, payment.getPhone());
-            statement.setLong(3, payment.getAmount());
-            statement.setLong(4, payment.getUser().getId());
+            PaymentRows.bindInsert(statement, 1, payment);
             statement.execute();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public Optional<PaymentResult> debitAndSave(Payment payment) {
+        String sql = """
+                %s, summarized AS (
+                %s)
+                SELECT inserted.id AS payment_id, debited.balance
+                FROM inserted, debited
+                """.formatted(DEBIT_AND_ADD_PAYMENT_CTE, SUMMARIZE_PAYMENT_SQL);
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            bindDebitAndSave(statement, payment);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(new PaymentResult(resultSet.getLong("payment_id"), resultSet.getLong("balance")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("debitAndSave", sql, e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Boolean> debitAndSaveAll(List<Payment> payments) {
+        String sql = DEBIT_AND_ADD_PAYMENT_CTE + SUMMARIZE_PAYMENT_SQL;
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Payment payment : payments) {
+                bindDebitAndSave(statement, payment);
+                statement.addBatch();
+            }
+            int[] counts = statement.executeBatch();
+            return Arrays.stream(counts).mapToObj(count -> count > 0).toList();
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("debitAndSaveAll", sql, e);
+        }
+    }
+
+    private static void bindDebitAndSave(PreparedStatement statement, Payment payment) throws SQLException {
+        statement.setLong(1, payment.getAmount());
+        statement.setLong(2, payment.getUser().getId());
+        statement.setLong(3, payment.getAmount());
+        statement.setTimestamp(4, new Timestamp(payment.getDate().getTime()));
+        statement.setString(5, payment.getPhone());
+        statement.setLong(6, payment.getAmount());
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+
 }
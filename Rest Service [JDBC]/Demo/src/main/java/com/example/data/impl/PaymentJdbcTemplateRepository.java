@@ -1,29 +1,110 @@
 package com.example.data.impl;
 
+import com.example.api.dto.PaymentData;
 import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
 import com.example.entities.ApplicationUser;
 import com.example.entities.Payment;
+import com.example.entities.PaymentRows;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class PaymentJdbcTemplateRepository implements PaymentRepository {
 
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     String FIND_ALL_BY_USER_SQL = """
-                SELECT * FROM payment
-                WHERE user_id = ?
+                SELECT %s FROM payment
+                WHERE user_id = ? AND id > ?
+                  AND date >= COALESCE(CAST(? AS TIMESTAMP), '-infinity')
+                  AND date < COALESCE(CAST(? AS TIMESTAMP), 'infinity')
+                ORDER BY id
                 LIMIT ? OFFSET ?
+                """.formatted(PaymentRows.COLUMNS);
+
+    String FIND_ALL_BY_USER_AFTER_SQL = """
+                SELECT %s FROM payment
+                WHERE user_id = ? AND id > ?
+                  AND date >= COALESCE(CAST(? AS TIMESTAMP), '-infinity')
+                  AND date < COALESCE(CAST(? AS TIMESTAMP), 'infinity')
+                ORDER BY id
+                LIMIT ?
+                """.formatted(PaymentRows.COLUMNS);
+
+    String FIND_ALL_BY_USER_FOR_EXPORT_SQL = """
+                SELECT %s FROM payment
+                WHERE user_id = ?
+                ORDER BY id
+                """.formatted(PaymentRows.COLUMNS);
+
+    String FIND_SUMMARY_BY_USER_SQL = """
+                SELECT kind, bucket, total_amount, payment_count FROM payment_summary
+                WHERE user_id = ?
+                ORDER BY kind, bucket
+                """;
+
+    String COUNT_BY_USER_SQL = """
+                SELECT payment_count FROM application_user
+                WHERE id = ?
                 """;
 
     String ADD_PAYMENT_TO_USER_SQL = """
                 INSERT INTO payment
-                    (date, phone, amount, user_id)
-                VALUES (?, ?, ?, ?)
+                    (%s)
+                VALUES (%s)
+                """.formatted(PaymentRows.INSERT_COLUMNS, PaymentRows.INSERT_VALUES);
+
+    String DEBIT_AND_ADD_PAYMENT_CTE = """
+                WITH debited AS (
+                    UPDATE application_user
+                    SET balance = balance - ?,
+                        payment_count = payment_count + 1
+                    WHERE id = ? AND balance >= ?
+                    RETURNING id, balance
+                ), inserted AS (
+                    INSERT INTO payment
+                        (date, phone, amount, user_id)
+                    SELECT CAST(? AS TIMESTAMP), CAST(? AS VARCHAR), CAST(? AS BIGINT), id FROM debited
+                    RETURNING id, user_id, date, phone, amount
+                )
                 """;
 
+    String SUMMARIZE_PAYMENT_SQL = """
+                INSERT INTO payment_summary
+                    (user_id, kind, bucket, total_amount, payment_count)
+                SELECT inserted.user_id, bucket.kind, bucket.name, inserted.amount, 1
+                FROM inserted CROSS JOIN LATERAL (VALUES
+                    ('DAY', to_char(inserted.date, 'YYYY-MM-DD')),
+                    ('MONTH', to_char(inserted.date, 'YYYY-MM')),
+                    ('PHONE', inserted.phone)
+                ) AS bucket (kind, name)
+                ON CONFLICT (user_id, kind, bucket) DO UPDATE
+                SET total_amount = payment_summary.total_amount + EXCLUDED.total_amount,
+                    payment_count = payment_summary.payment_count + 1
+                """;
+
+    String DEBIT_AND_ADD_PAYMENT_SQL = """
+                %s, summarized AS (
+                %s)
+                SELECT inserted.id AS payment_id, debited.balance
+                FROM inserted, debited
+                """.formatted(DEBIT_AND_ADD_PAYMENT_CTE, SUMMARIZE_PAYMENT_SQL);
+
+    String DEBIT_AND_ADD_PAYMENTS_SQL = DEBIT_AND_ADD_PAYMENT_CTE + SUMMARIZE_PAYMENT_SQL;
+
     private final JdbcTemplate jdbcTemplate;
 
     public PaymentJdbcTemplateRepository(JdbcTemplate jdbcTemplate) {
@@ -31,28 +112,110 @@ public class PaymentJdbcTemplateRepository implements PaymentRepository {
     }
 
     @Override
-    public List<Payment> findAllByUser(ApplicationUser user, PageRequest pageRequest) {
+    public List<PaymentData> findAllByUser(ApplicationUser user, long afterId, Date from, Date to,
+                                           PageRequest pageRequest) {
         return jdbcTemplate.query(
                 FIND_ALL_BY_USER_SQL,
-                (rs, rowNum) -> new Payment(
-                        rs.getLong("id"),
-                        rs.getDate("date"),
-                        rs.getString("phone"),
-                        rs.getLong("amount"),
-                        user),
+                (rs, rowNum) -> new PaymentData(
+                        rs.getLong(PaymentRows.ID),
+                        rs.getTimestamp(PaymentRows.DATE),
+                        rs.getString(PaymentRows.PHONE),
+                        (double) rs.getLong(PaymentRows.AMOUNT) / 100),
                 user.getId(),
+                afterId,
+                new SqlParameterValue(Types.TIMESTAMP, from),
+                new SqlParameterValue(Types.TIMESTAMP, to),
                 pageRequest.getPageSize(),
                 pageRequest.getOffset());
     }
 
+    @Override
+    public List<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit) {
+        return jdbcTemplate.query(
+                FIND_ALL_BY_USER_AFTER_SQL,
+                (rs, rowNum) -> new PaymentData(
+                        rs.getLong(PaymentRows.ID),
+                        rs.getTimestamp(PaymentRows.DATE),
+                        rs.getString(PaymentRows.PHONE),
+                        (double) rs.getLong(PaymentRows.AMOUNT) / 100),
+                user.getId(),
+                afterId,
+                new SqlParameterValue(Types.TIMESTAMP, from),
+                new SqlParameterValue(Types.TIMESTAMP, to),
+                limit);
+    }
+
+    @Override
+    public void forEachByUser(ApplicationUser user, Consumer<Payment> action) {
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(FIND_ALL_BY_USER_FOR_EXPORT_SQL);
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    statement.setLong(1, user.getId());
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> {
+                    Payment payment = PaymentRows.map(rs);
+                    payment.setUser(user);
+                    action.accept(payment);
+                });
+    }
+
+    @Override
+    public List<PaymentSummaryRow> findSummaryByUser(ApplicationUser user) {
+        return jdbcTemplate.query(
+                FIND_SUMMARY_BY_USER_SQL,
+                (rs, rowNum) -> new PaymentSummaryRow(
+                        rs.getString("kind"),
+                        rs.getString("bucket"),
+                        rs.getLong("total_amount"),
+                        rs.getLong("payment_count")),
+                user.getId());
+    }
+
+    @Override
+    public long countByUser(ApplicationUser user) {
+        Long count = jdbcTemplate.queryForObject(COUNT_BY_USER_SQL, Long.class, user.getId());
+        return count != null ? count : 0;
+    }
+
     @Override
     public void save(Payment payment) {
         jdbcTemplate.update(
                 ADD_PAYMENT_TO_USER_SQL,
+                ps -> PaymentRows.bindInsert(ps, 1, payment));
+    }
+
+    @Override
+    public Optional<PaymentResult> debitAndSave(Payment payment) {
+        List<PaymentResult> results = jdbcTemplate.query(
+                DEBIT_AND_ADD_PAYMENT_SQL,
+                (rs, rowNum) -> new PaymentResult(rs.getLong("payment_id"), rs.getLong("balance")),
+                payment.getAmount(),
+                payment.getUser().getId(),
+                payment.getAmount(),
                 payment.getDate(),
                 payment.getPhone(),
-                payment.getAmount(),
-                payment.getUser().getId());
+                payment.getAmount());
+        return results.size() == 0 ?
+                Optional.empty() :
+                Optional.of(results.get(0));
+    }
+
+    @Override
+    public List<Boolean> debitAndSaveAll(List<Payment> payments) {
+        int[] counts = jdbcTemplate.batchUpdate(
+                DEBIT_AND_ADD_PAYMENTS_SQL,
+                payments.stream()
+                        .map(payment -> new Object[] {
+                                payment.getAmount(),
+                                payment.getUser().getId(),
+                                payment.getAmount(),
+                                payment.getDate(),
+                                payment.getPhone(),
+                                payment.getAmount()})
+                        .toList());
+        return Arrays.stream(counts).mapToObj(count -> count > 0).toList();
     }
 
 }
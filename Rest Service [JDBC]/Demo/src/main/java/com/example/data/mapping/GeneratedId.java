@@ -0,0 +1,15 @@
+package com.example.data.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Key column assigned by the database: selected, never inserted, and bound last in updates as the
+ * {@code WHERE} condition.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface GeneratedId {
+}
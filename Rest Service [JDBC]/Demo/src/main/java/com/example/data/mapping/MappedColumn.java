@@ -0,0 +1,27 @@
+package com.example.data.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides how a field of a {@link RowMapping} class maps to its column. A field whose type is
+ * itself a {@link RowMapping} class is written as the {@link GeneratedId} of the referenced row.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface MappedColumn {
+
+    /**
+     * Column name, the field name in snake case by default.
+     */
+    String value() default "";
+
+    boolean selectable() default true;
+
+    boolean insertable() default true;
+
+    boolean updatable() default true;
+
+}
@@ -0,0 +1,17 @@
+package com.example.data.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates {@code <Type>Rows} next to the annotated class: the column lists of its table, an
+ * index-based row mapper and parameter binders for inserts and updates. Every instance field is a
+ * column named after the field in snake case unless {@link MappedColumn} says otherwise; fields
+ * are read and written through their getters and setters.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface RowMapping {
+}
@@ -0,0 +1,414 @@
+package com.example.data.mapping.processor;
+
+import com.example.data.mapping.GeneratedId;
+import com.example.data.mapping.MappedColumn;
+import com.example.data.mapping.RowMapping;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the {@code <Type>Rows} class of every {@link RowMapping} type. Columns are read by their
+ * position in {@code COLUMNS}, so queries using the generated mapper must select exactly that list.
+ */
+@SupportedAnnotationTypes("com.example.data.mapping.RowMapping")
+public class RowMappingProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(RowMapping.class)) {
+            try {
+                if (element.getKind() != ElementKind.CLASS) {
+                    throw new MappingException(element, "@RowMapping requires a class");
+                }
+                write((TypeElement) element);
+            } catch (MappingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Could not write row mapping: " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void write(TypeElement type) throws IOException {
+        String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        String typeName = type.getSimpleName().toString();
+        String rowsName = typeName + "Rows";
+        List<Column> columns = columns(type);
+        List<Column> selected = columns.stream().filter(c -> c.selectable).toList();
+        List<Column> inserted = columns.stream().filter(c -> c.insertable).toList();
+        List<Column> updated = columns.stream().filter(c -> c.updatable).toList();
+        Column id = columns.stream().filter(c -> c.id).findFirst().orElse(null);
+
+        var source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("import org.springframework.jdbc.core.RowMapper;\n");
+        source.append("import org.springframework.jdbc.core.namedparam.AbstractSqlParameterSource;\n");
+        source.append("import org.springframework.jdbc.core.namedparam.SqlParameterSource;\n\n");
+        source.append("import javax.annotation.processing.Generated;\n");
+        source.append("import java.sql.PreparedStatement;\n");
+        source.append("import java.sql.ResultSet;\n");
+        source.append("import java.sql.SQLException;\n");
+        source.append("import java.sql.Timestamp;\n");
+        source.append("import java.sql.Types;\n\n");
+        source.append("@Generated(\"").append(RowMappingProcessor.class.getName()).append("\")\n");
+        source.append("public final class ").append(rowsName).append(" {\n\n");
+
+        constant(source, "COLUMNS", selected.stream().map(c -> c.name).collect(Collectors.joining(", ")));
+        constant(source, "INSERT_COLUMNS", inserted.stream().map(c -> c.name).collect(Collectors.joining(", ")));
+        constant(source, "INSERT_VALUES", inserted.stream().map(c -> "?").collect(Collectors.joining(", ")));
+        constant(source, "UPDATE_SET", updated.stream().map(c -> c.name + " = ?").collect(Collectors.joining(", ")));
+        for (int i = 0; i < selected.size(); i++) {
+            source.append("    public static final int ").append(selected.get(i).name.toUpperCase())
+                    .append(" = ").append(i + 1).append(";\n\n");
+        }
+        source.append("    public static final RowMapper<").append(typeName).append("> ROW_MAPPER = (rs, rowNum) -> map(rs);\n\n");
+        source.append("    private static final String[] PARAMETER_NAMES = {")
+                .append(columns.stream().map(c -> "\"" + c.name + "\"").collect(Collectors.joining(", ")))
+                .append("};\n\n");
+        source.append("    private ").append(rowsName).append("() {\n    }\n\n");
+
+        source.append("    public static ").append(typeName).append(" map(ResultSet rs) throws SQLException {\n");
+        source.append("        var row = new ").append(typeName).append("();\n");
+        for (int i = 0; i < selected.size(); i++) {
+            read(source, selected.get(i), i + 1);
+        }
+        source.append("        return row;\n    }\n\n");
+
+        source.append("    /**\n     * Binds {@link #INSERT_COLUMNS} from {@code index} on.\n     *\n");
+        source.append("     * @return the index of the next parameter\n     */\n");
+        source.append("    public static int bindInsert(PreparedStatement ps, int index, ").append(typeName)
+                .append(" row) throws SQLException {\n");
+        for (Column column : inserted) {
+            bind(source, column);
+        }
+        source.append("        return index;\n    }\n\n");
+
+        source.append("    /**\n     * Binds {@link #UPDATE_SET} from {@code index} on");
+        source.append(id == null ? ".\n" : ", followed by the {@code " + id.name + "} of the row.\n");
+        source.append("     *\n     * @return the index of the next parameter\n     */\n");
+        source.append("    public static int bindUpdate(PreparedStatement ps, int index, ").append(typeName)
+                .append(" row) throws SQLException {\n");
+        for (Column column : updated) {
+            bind(source, column);
+        }
+        if (id != null) {
+            bind(source, id);
+        }
+        source.append("        return index;\n    }\n\n");
+
+        source.append("    /**\n     * Named parameters for every column, named after the column.\n     */\n");
+        source.append("    public static SqlParameterSource parameters(").append(typeName).append(" row) {\n");
+        source.append("        return new Parameters(row);\n    }\n\n");
+
+        source.append("    private static final class Parameters extends AbstractSqlParameterSource {\n\n");
+        source.append("        private final ").append(typeName).append(" row;\n\n");
+        source.append("        Parameters(").append(typeName).append(" row) {\n            this.row = row;\n        }\n\n");
+        source.append("        @Override\n        public boolean hasValue(String paramName) {\n");
+        source.append("            return switch (paramName) {\n");
+        source.append("                case ").append(columns.stream().map(c -> "\"" + c.name + "\"").collect(Collectors.joining(", ")))
+                .append(" -> true;\n");
+        source.append("                default -> false;\n            };\n        }\n\n");
+        source.append("        @Override\n        public Object getValue(String paramName) {\n");
+        source.append("            return switch (paramName) {\n");
+        for (Column column : columns) {
+            source.append("                case \"").append(column.name).append("\" -> ").append(value(column)).append(";\n");
+        }
+        source.append("                default -> throw new IllegalArgumentException(\"No value for parameter \" + paramName);\n");
+        source.append("            };\n        }\n\n");
+        source.append("        @Override\n        public int getSqlType(String paramName) {\n");
+        source.append("            return switch (paramName) {\n");
+        for (Column column : columns) {
+            source.append("                case \"").append(column.name).append("\" -> Types.").append(column.kind.sqlType).append(";\n");
+        }
+        source.append("                default -> TYPE_UNKNOWN;\n            };\n        }\n\n");
+        source.append("        @Override\n        public String[] getParameterNames() {\n");
+        source.append("            return PARAMETER_NAMES.clone();\n        }\n\n    }\n\n}\n");
+
+        try (Writer writer = processingEnv.getFiler()
+                .createSourceFile(packageName + "." + rowsName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private List<Column> columns(TypeElement type) {
+        boolean constructible = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        if (!constructible) {
+            throw new MappingException(type, "@RowMapping requires a no-argument constructor");
+        }
+        List<Column> columns = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            columns.add(column(type, field));
+        }
+        if (columns.stream().filter(c -> c.id).count() > 1) {
+            throw new MappingException(type, "@RowMapping allows a single @GeneratedId");
+        }
+        return columns;
+    }
+
+    private Column column(TypeElement type, VariableElement field) {
+        String fieldName = field.getSimpleName().toString();
+        MappedColumn mapped = field.getAnnotation(MappedColumn.class);
+        boolean id = field.getAnnotation(GeneratedId.class) != null;
+        var column = new Column();
+        column.field = fieldName;
+        column.name = mapped == null || mapped.value().isEmpty() ? snakeCase(fieldName) : mapped.value();
+        column.id = id;
+        column.selectable = mapped == null || mapped.selectable();
+        column.insertable = !id && (mapped == null || mapped.insertable());
+        column.updatable = !id && (mapped == null || mapped.updatable());
+
+        TypeMirror fieldType = field.asType();
+        String accessor = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        column.getter = getter(type, field, accessor);
+        column.setter = "set" + accessor;
+        column.kind = Kind.of(fieldType, processingEnv.getTypeUtils().asElement(fieldType));
+        if (column.kind == Kind.REFERENCE) {
+            TypeElement referenced = (TypeElement) processingEnv.getTypeUtils().asElement(fieldType);
+            Column referencedId = columns(referenced).stream().filter(c -> c.id).findFirst()
+                    .orElseThrow(() -> new MappingException(field, referenced.getSimpleName() + " has no @GeneratedId"));
+            if (column.selectable) {
+                throw new MappingException(field, "References can only be written, use @MappedColumn(selectable = false)");
+            }
+            column.referenceGetter = referencedId.getter;
+            column.kind = referencedId.kind;
+            column.reference = true;
+        } else if (column.kind == null) {
+            throw new MappingException(field, "Unsupported column type " + fieldType);
+        }
+        if (column.kind == Kind.ENUM) {
+            TypeElement enumType = (TypeElement) processingEnv.getTypeUtils().asElement(fieldType);
+            column.enumType = enumType.getQualifiedName().toString();
+            column.enumConstants = enumType.getEnclosedElements().stream()
+                    .filter(e -> e.getKind() == ElementKind.ENUM_CONSTANT)
+                    .map(e -> e.getSimpleName().toString())
+                    .toList();
+        }
+        if (column.selectable && !hasMethod(type, column.setter, 1)) {
+            throw new MappingException(field, "Selected column " + column.name + " requires " + column.setter);
+        }
+        return column;
+    }
+
+    private String getter(TypeElement type, VariableElement field, String accessor) {
+        boolean primitiveBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+        String getter = (primitiveBoolean ? "is" : "get") + accessor;
+        if (!hasMethod(type, getter, 0)) {
+            throw new MappingException(field, "Column field requires " + getter + "()");
+        }
+        return getter;
+    }
+
+    private static boolean hasMethod(TypeElement type, String name, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                    && !method.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void constant(StringBuilder source, String name, String value) {
+        source.append("    public static final String ").append(name).append(" = \"").append(value).append("\";\n\n");
+    }
+
+    private static void read(StringBuilder source, Column column, int index) {
+        String set = "        row." + column.setter + "(";
+        switch (column.kind) {
+            case LONG, INT, DOUBLE, BOOLEAN -> source.append(set).append("rs.").append(column.kind.getter)
+                    .append("(").append(index).append("));\n");
+            case LONG_OBJECT, INT_OBJECT, DOUBLE_OBJECT, BOOLEAN_OBJECT -> {
+                source.append("        var ").append(column.field).append(" = rs.").append(column.kind.getter)
+                        .append("(").append(index).append(");\n");
+                source.append(set).append("rs.wasNull() ? null : ").append(column.field).append(");\n");
+            }
+            case ENUM -> {
+                source.append("        String ").append(column.field).append(" = rs.getString(").append(index).append(");\n");
+                source.append(set).append(column.field).append(" == null ? null : switch (").append(column.field)
+                        .append(") {\n");
+                for (String constant : column.enumConstants) {
+                    source.append("            case \"").append(constant).append("\" -> ").append(column.enumType)
+                            .append(".").append(constant).append(";\n");
+                }
+                source.append("            default -> ").append(column.enumType).append(".valueOf(")
+                        .append(column.field).append(");\n        });\n");
+            }
+            default -> source.append(set).append("rs.").append(column.kind.getter)
+                    .append("(").append(index).append("));\n");
+        }
+    }
+
+    private static void bind(StringBuilder source, Column column) {
+        String value = "row." + column.getter + "()";
+        if (column.reference) {
+            source.append("        var ").append(column.field).append(" = ").append(value).append(";\n");
+            value = column.field + " == null ? null : " + column.field + "." + column.referenceGetter + "()";
+        }
+        String statement = switch (column.kind) {
+            case LONG, INT, DOUBLE, BOOLEAN -> "ps." + column.kind.setter + "(index++, " + value + ")";
+            case UTIL_DATE -> "ps.setTimestamp(index++, " + value + " == null ? null : new Timestamp("
+                    + value + ".getTime()))";
+            case ENUM -> "ps.setObject(index++, " + value + " == null ? null : " + value + ".name(), Types.OTHER)";
+            case STRING, SQL_DATE, TIMESTAMP -> "ps." + column.kind.setter + "(index++, " + value + ")";
+            default -> "ps.setObject(index++, " + value + ", Types." + column.kind.sqlType + ")";
+        };
+        source.append("        ").append(statement).append(";\n");
+    }
+
+    private static String value(Column column) {
+        String value = "row." + column.getter + "()";
+        if (column.reference) {
+            return value + " == null ? null : " + value + "." + column.referenceGetter + "()";
+        }
+        if (column.kind == Kind.ENUM) {
+            return value + " == null ? null : " + value + ".name()";
+        }
+        return value;
+    }
+
+    static String snakeCase(String name) {
+        StringBuilder column = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                column.append('_').append(Character.toLowerCase(c));
+            } else {
+                column.append(c);
+            }
+        }
+        return column.toString();
+    }
+
+    private enum Kind {
+
+        LONG("getLong", "setLong", "BIGINT"),
+        LONG_OBJECT("getLong", null, "BIGINT"),
+        INT("getInt", "setInt", "INTEGER"),
+        INT_OBJECT("getInt", null, "INTEGER"),
+        DOUBLE("getDouble", "setDouble", "DOUBLE"),
+        DOUBLE_OBJECT("getDouble", null, "DOUBLE"),
+        BOOLEAN("getBoolean", "setBoolean", "BOOLEAN"),
+        BOOLEAN_OBJECT("getBoolean", null, "BOOLEAN"),
+        STRING("getString", "setString", "VARCHAR"),
+        SQL_DATE("getDate", "setDate", "DATE"),
+        TIMESTAMP("getTimestamp", "setTimestamp", "TIMESTAMP"),
+        UTIL_DATE("getTimestamp", null, "TIMESTAMP"),
+        ENUM(null, null, "OTHER"),
+        REFERENCE(null, null, null);
+
+        final String getter;
+
+        final String setter;
+
+        final String sqlType;
+
+        Kind(String getter, String setter, String sqlType) {
+            this.getter = getter;
+            this.setter = setter;
+            this.sqlType = sqlType;
+        }
+
+        static Kind of(TypeMirror type, Element element) {
+            switch (type.getKind()) {
+                case LONG: return LONG;
+                case INT: return INT;
+                case DOUBLE: return DOUBLE;
+                case BOOLEAN: return BOOLEAN;
+                case DECLARED: break;
+                default: return null;
+            }
+            if (element.getKind() == ElementKind.ENUM) {
+                return ENUM;
+            }
+            if (element.getAnnotation(RowMapping.class) != null) {
+                return REFERENCE;
+            }
+            return switch (((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString()) {
+                case "java.lang.Long" -> LONG_OBJECT;
+                case "java.lang.Integer" -> INT_OBJECT;
+                case "java.lang.Double" -> DOUBLE_OBJECT;
+                case "java.lang.Boolean" -> BOOLEAN_OBJECT;
+                case "java.lang.String" -> STRING;
+                case "java.sql.Date" -> SQL_DATE;
+                case "java.sql.Timestamp" -> TIMESTAMP;
+                case "java.util.Date" -> UTIL_DATE;
+                default -> null;
+            };
+        }
+
+    }
+
+    private static final class Column {
+
+        String field;
+
+        String name;
+
+        Kind kind;
+
+        boolean id;
+
+        boolean selectable;
+
+        boolean insertable;
+
+        boolean updatable;
+
+        boolean reference;
+
+        String getter;
+
+        String setter;
+
+        String referenceGetter;
+
+        String enumType;
+
+        List<String> enumConstants;
+
+    }
+
+    private static final class MappingException extends RuntimeException {
+
+        private final transient Element element;
+
+        MappingException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+
+    }
+
+}
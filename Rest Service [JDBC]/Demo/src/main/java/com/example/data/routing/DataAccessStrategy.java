@@ -0,0 +1,48 @@
+package com.example.data.routing;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.data.impl.ApplicationUserJDBCRepository;
+import com.example.data.impl.ApplicationUserJdbcTemplateRepository;
+import com.example.data.impl.ApplicationUserNamedParameterJdbcOperationsRepository;
+import com.example.data.impl.ApplicationUserNamedParameterJdbcTemplateRepository;
+import com.example.data.impl.ApplicationUserOperationJdbcRepository;
+import com.example.data.impl.PaymentJDBCRepository;
+import com.example.data.impl.PaymentJdbcOperationsRepository;
+import com.example.data.impl.PaymentJdbcTemplateRepository;
+import com.example.data.impl.PaymentNamedParameterJdbcOperationsRepository;
+import com.example.data.impl.PaymentNamedParameterJdbcTemplateRepository;
+
+public enum DataAccessStrategy {
+
+    DATA_SOURCE(ApplicationUserJDBCRepository.class, PaymentJDBCRepository.class),
+
+    JDBC_TEMPLATE(ApplicationUserJdbcTemplateRepository.class, PaymentJdbcTemplateRepository.class),
+
+    JDBC_OPERATIONS(ApplicationUserOperationJdbcRepository.class, PaymentJdbcOperationsRepository.class),
+
+    NAMED_PARAMETER_JDBC_TEMPLATE(ApplicationUserNamedParameterJdbcTemplateRepository.class,
+            PaymentNamedParameterJdbcTemplateRepository.class),
+
+    NAMED_PARAMETER_JDBC_OPERATIONS(ApplicationUserNamedParameterJdbcOperationsRepository.class,
+            PaymentNamedParameterJdbcOperationsRepository.class);
+
+    private final Class<? extends ApplicationUserRepository> userRepositoryType;
+
+    private final Class<? extends PaymentRepository> paymentRepositoryType;
+
+    DataAccessStrategy(Class<? extends ApplicationUserRepository> userRepositoryType,
+                       Class<? extends PaymentRepository> paymentRepositoryType) {
+        this.userRepositoryType = userRepositoryType;
+        this.paymentRepositoryType = paymentRepositoryType;
+    }
+
+    public Class<? extends ApplicationUserRepository> getUserRepositoryType() {
+        return userRepositoryType;
+    }
+
+    public Class<? extends PaymentRepository> getPaymentRepositoryType() {
+        return paymentRepositoryType;
+    }
+
+}
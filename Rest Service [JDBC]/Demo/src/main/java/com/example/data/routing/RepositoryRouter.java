@@ -0,0 +1,164 @@
+package com.example.data.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Decides which {@link DataAccessStrategy} serves repository calls and times every call in
+ * {@code repository.calls}, tagged with the strategy and whether it was the primary or a shadow call.
+ * <p>
+ * A sample of reads is repeated on the shadow strategy on a small pool of its own, after the primary
+ * result has been returned to the caller; it is compared with a copy of the primary result taken
+ * before the caller could modify it. The outcome is counted in {@code repository.shadow.reads}
+ * and mismatches are logged. When the pool is busy shadow reads are dropped, never queued behind
+ * requests. Shadow reads run outside the caller's transaction, so a write between the two reads can
+ * show up as a mismatch. Writes only ever go to the primary strategy.
+ */
+@Component
+public class RepositoryRouter implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryRouter.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentMap<CallKey, Timer> timers = new ConcurrentHashMap<>();
+
+    private volatile Routing routing;
+
+    public RepositoryRouter(MeterRegistry meterRegistry,
+                            @Value("${account.repository.strategy:DATA_SOURCE}") DataAccessStrategy strategy,
+                            @Value("${account.repository.shadow.strategy:#{null}}") DataAccessStrategy shadowStrategy,
+                            @Value("${account.repository.shadow.percent:0}") double shadowPercent,
+                            @Value("${account.repository.shadow.threads:2}") int threads,
+                            @Value("${account.repository.shadow.queue-capacity:256}") int queueCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("repository-shadow-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "repository-shadow", null).bindTo(meterRegistry);
+        route(strategy, shadowStrategy, shadowPercent);
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public Routing route(DataAccessStrategy strategy, DataAccessStrategy shadowStrategy, double shadowPercent) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Repository strategy is required");
+        }
+        if (shadowStrategy == strategy) {
+            throw new IllegalArgumentException("Shadow strategy must differ from " + strategy);
+        }
+        if (shadowPercent < 0 || shadowPercent > 100) {
+            throw new IllegalArgumentException("Shadow percent must be between 0 and 100");
+        }
+        Routing routing = new Routing(strategy, shadowStrategy, shadowStrategy == null ? 0 : shadowPercent);
+        if (!routing.equals(this.routing)) {
+            log.info("Routing repository calls to {}, shadowing {}% of reads to {}",
+                    strategy, routing.shadowPercent(), shadowStrategy);
+        }
+        this.routing = routing;
+        return routing;
+    }
+
+    <R, T> T read(String repository, String method, Object argument,
+                  Map<DataAccessStrategy, R> implementations, Function<R, T> query) {
+        Routing current = routing;
+        T result = timed(repository, method, current.strategy(), "primary", implementations, query);
+        if (current.shadowStrategy() != null
+                && ThreadLocalRandom.current().nextDouble(100) < current.shadowPercent()) {
+            Object primary = ShadowComparison.snapshot(result);
+            try {
+                executor.execute(() -> compare(repository, method, argument, current, implementations, query, primary));
+            } catch (RejectedExecutionException e) {
+                shadowReads(repository, method, "dropped").increment();
+            }
+        }
+        return result;
+    }
+
+    <R, T> T call(String repository, String method, Map<DataAccessStrategy, R> implementations,
+                  Function<R, T> operation) {
+        return timed(repository, method, routing.strategy(), "primary", implementations, operation);
+    }
+
+    private <R, T> void compare(String repository, String method, Object argument, Routing routing,
+                                Map<DataAccessStrategy, R> implementations, Function<R, T> query, Object primary) {
+        T shadow;
+        try {
+            shadow = timed(repository, method, routing.shadowStrategy(), "shadow", implementations, query);
+        } catch (RuntimeException e) {
+            shadowReads(repository, method, "error").increment();
+            log.warn("Shadow read {}.{}({}) failed on {}", repository, method, argument, routing.shadowStrategy(), e);
+            return;
+        }
+        String difference = ShadowComparison.difference(primary, shadow);
+        if (difference == null) {
+            shadowReads(repository, method, "match").increment();
+            return;
+        }
+        shadowReads(repository, method, "mismatch").increment();
+        log.warn("Shadow read {}.{}({}) returned different results on {} and {}: {}",
+                repository, method, argument, routing.strategy(), routing.shadowStrategy(), difference);
+    }
+
+    private <R, T> T timed(String repository, String method, DataAccessStrategy strategy, String role,
+                           Map<DataAccessStrategy, R> implementations, Function<R, T> operation) {
+        Timer timer = timers.computeIfAbsent(new CallKey(repository, method, strategy, role),
+                key -> Timer.builder("repository.calls")
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .tag("strategy", strategy.name())
+                        .tag("role", role)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry));
+        long start = System.nanoTime();
+        try {
+            return operation.apply(implementations.get(strategy));
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Counter shadowReads(String repository, String method, String result) {
+        return Counter.builder("repository.shadow.reads")
+                .tag("repository", repository)
+                .tag("method", method)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public record Routing(DataAccessStrategy strategy, DataAccessStrategy shadowStrategy, double shadowPercent) {
+    }
+
+    private record CallKey(String repository, String method, DataAccessStrategy strategy, String role) {
+    }
+
+}
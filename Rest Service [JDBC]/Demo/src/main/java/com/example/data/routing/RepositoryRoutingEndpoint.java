@@ -0,0 +1,33 @@
+package com.example.data.routing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Switches the repository strategy of a running instance. Exposed over JMX only, since the
+ * application has no administrative role to guard it with over HTTP.
+ */
+@Endpoint(id = "repositories")
+public class RepositoryRoutingEndpoint {
+
+    private final RepositoryRouter router;
+
+    public RepositoryRoutingEndpoint(RepositoryRouter router) {
+        this.router = router;
+    }
+
+    @ReadOperation
+    public RepositoryRouter.Routing routing() {
+        return router.getRouting();
+    }
+
+    @WriteOperation
+    public RepositoryRouter.Routing route(DataAccessStrategy strategy,
+                                          @Nullable DataAccessStrategy shadowStrategy,
+                                          @Nullable Double shadowPercent) {
+        return router.route(strategy, shadowStrategy, shadowPercent == null ? 0 : shadowPercent);
+    }
+
+}
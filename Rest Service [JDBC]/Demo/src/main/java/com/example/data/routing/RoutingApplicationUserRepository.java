@@ -0,0 +1,57 @@
+package com.example.data.routing;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.entities.ApplicationUser;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class RoutingApplicationUserRepository implements ApplicationUserRepository {
+
+    private static final String REPOSITORY = "user";
+
+    private final RepositoryRouter router;
+
+    private final Map<DataAccessStrategy, ApplicationUserRepository> implementations;
+
+    public RoutingApplicationUserRepository(RepositoryRouter router,
+                                            Map<DataAccessStrategy, ApplicationUserRepository> implementations) {
+        this.router = router;
+        this.implementations = implementations;
+    }
+
+    @Override
+    public Optional<ApplicationUser> findByLogin(String login) {
+        return router.read(REPOSITORY, "findByLogin", login, implementations, r -> r.findByLogin(login));
+    }
+
+    @Override
+    public Optional<ApplicationUser> findById(Long id) {
+        return router.read(REPOSITORY, "findById", id, implementations, r -> r.findById(id));
+    }
+
+    @Override
+    public void forEachLogin(Consumer<String> action) {
+        router.call(REPOSITORY, "forEachLogin", implementations, r -> {
+            r.forEachLogin(action);
+            return null;
+        });
+    }
+
+    @Override
+    public ApplicationUser save(ApplicationUser applicationUser) {
+        return router.call(REPOSITORY, "save", implementations, r -> r.save(applicationUser));
+    }
+
+    @Override
+    public ApplicationUser update(ApplicationUser applicationUser) {
+        return router.call(REPOSITORY, "update", implementations, r -> r.update(applicationUser));
+    }
+
+    @Override
+    public Optional<Long> debit(Long id, long amount) {
+        return router.call(REPOSITORY, "debit", implementations, r -> r.debit(id, amount));
+    }
+
+}
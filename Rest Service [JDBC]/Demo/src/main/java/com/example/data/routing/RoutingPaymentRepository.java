@@ -0,0 +1,81 @@
+package com.example.data.routing;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class RoutingPaymentRepository implements PaymentRepository {
+
+    private static final String REPOSITORY = "payment";
+
+    private final RepositoryRouter router;
+
+    private final Map<DataAccessStrategy, PaymentRepository> implementations;
+
+    public RoutingPaymentRepository(RepositoryRouter router,
+                                    Map<DataAccessStrategy, PaymentRepository> implementations) {
+        this.router = router;
+        this.implementations = implementations;
+    }
+
+    @Override
+    public List<PaymentData> findAllByUser(ApplicationUser user, long afterId, Date from, Date to,
+                                           PageRequest pageRequest) {
+        return router.read(REPOSITORY, "findAllByUser", user.getId(), implementations,
+                r -> r.findAllByUser(user, afterId, from, to, pageRequest));
+    }
+
+    @Override
+    public List<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit) {
+        return router.read(REPOSITORY, "findAllByUserAfter", user.getId(), implementations,
+                r -> r.findAllByUserAfter(user, afterId, from, to, limit));
+    }
+
+    @Override
+    public void forEachByUser(ApplicationUser user, Consumer<Payment> action) {
+        router.call(REPOSITORY, "forEachByUser", implementations, r -> {
+            r.forEachByUser(user, action);
+            return null;
+        });
+    }
+
+    @Override
+    public List<PaymentSummaryRow> findSummaryByUser(ApplicationUser user) {
+        return router.read(REPOSITORY, "findSummaryByUser", user.getId(), implementations,
+                r -> r.findSummaryByUser(user));
+    }
+
+    @Override
+    public long countByUser(ApplicationUser user) {
+        return router.read(REPOSITORY, "countByUser", user.getId(), implementations, r -> r.countByUser(user));
+    }
+
+    @Override
+    public void save(Payment payment) {
+        router.call(REPOSITORY, "save", implementations, r -> {
+            r.save(payment);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<PaymentResult> debitAndSave(Payment payment) {
+        return router.call(REPOSITORY, "debitAndSave", implementations, r -> r.debitAndSave(payment));
+    }
+
+    @Override
+    public List<Boolean> debitAndSaveAll(List<Payment> payments) {
+        return router.call(REPOSITORY, "debitAndSaveAll", implementations, r -> r.debitAndSaveAll(payments));
+    }
+
+}
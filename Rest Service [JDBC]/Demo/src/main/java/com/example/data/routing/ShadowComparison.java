@@ -0,0 +1,115 @@
+package com.example.data.routing;
+
+import com.example.api.dto.PaymentData;
+import com.example.entities.ApplicationUser;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Compares what two strategies returned for the same read. Dates are compared by instant, since
+ * implementations differ in whether they hand out {@link java.sql.Timestamp} or plain {@link Date},
+ * and users field by field, since {@link ApplicationUser#equals} only looks at the login.
+ */
+final class ShadowComparison {
+
+    private static final Map<String, Function<ApplicationUser, Object>> USER_FIELDS = new LinkedHashMap<>();
+
+    static {
+        USER_FIELDS.put("id", ApplicationUser::getId);
+        USER_FIELDS.put("login", ApplicationUser::getLogin);
+        USER_FIELDS.put("balance", ApplicationUser::getBalance);
+        USER_FIELDS.put("firstName", ApplicationUser::getFirstName);
+        USER_FIELDS.put("lastName", ApplicationUser::getLastName);
+        USER_FIELDS.put("patronymic", ApplicationUser::getPatronymic);
+        USER_FIELDS.put("email", ApplicationUser::getEmail);
+        USER_FIELDS.put("gender", ApplicationUser::getGender);
+        USER_FIELDS.put("birthday", user -> instant(user.getBirthday()));
+    }
+
+    private ShadowComparison() {
+    }
+
+    /**
+     * Copy of a primary result as it was returned, taken before the caller gets it: callers may
+     * modify what they read, such as the user an edit starts from, while the shadow read is queued.
+     */
+    static Object snapshot(Object result) {
+        if (result instanceof Optional<?> optional) {
+            return optional.map(ShadowComparison::snapshot);
+        }
+        if (result instanceof List<?> list) {
+            return list.stream().map(ShadowComparison::snapshot).toList();
+        }
+        if (result instanceof ApplicationUser user) {
+            var copy = new ApplicationUser(user.getId(), user.getLogin(), user.getPassword(), user.getBalance());
+            copy.setFirstName(user.getFirstName());
+            copy.setLastName(user.getLastName());
+            copy.setPatronymic(user.getPatronymic());
+            copy.setEmail(user.getEmail());
+            copy.setGender(user.getGender());
+            copy.setBirthday(user.getBirthday());
+            return copy;
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code null} if both results are the same, otherwise a description of the first
+     * difference. Password hashes are compared but never included in the description.
+     */
+    static String difference(Object primary, Object shadow) {
+        if (primary instanceof Optional<?> p && shadow instanceof Optional<?> s) {
+            if (p.isPresent() != s.isPresent()) {
+                return (p.isPresent() ? "present" : "empty") + " vs " + (s.isPresent() ? "present" : "empty");
+            }
+            return p.isPresent() ? difference(p.get(), s.get()) : null;
+        }
+        if (primary instanceof List<?> p && shadow instanceof List<?> s) {
+            for (int i = 0; i < Math.min(p.size(), s.size()); i++) {
+                String difference = difference(p.get(i), s.get(i));
+                if (difference != null) {
+                    return "element " + i + ": " + difference;
+                }
+            }
+            return p.size() == s.size() ? null : "size " + p.size() + " vs " + s.size();
+        }
+        if (primary instanceof ApplicationUser p && shadow instanceof ApplicationUser s) {
+            return userDifference(p, s);
+        }
+        if (primary instanceof PaymentData p && shadow instanceof PaymentData s) {
+            boolean same = Objects.equals(p.id(), s.id())
+                    && Objects.equals(instant(p.date()), instant(s.date()))
+                    && Objects.equals(p.phone(), s.phone())
+                    && Double.compare(p.amount(), s.amount()) == 0;
+            return same ? null : p + " vs " + s;
+        }
+        return Objects.equals(primary, shadow) ? null : primary + " vs " + shadow;
+    }
+
+    private static String userDifference(ApplicationUser primary, ApplicationUser shadow) {
+        List<String> fields = new ArrayList<>();
+        USER_FIELDS.forEach((name, field) -> {
+            Object p = field.apply(primary);
+            Object s = field.apply(shadow);
+            if (!Objects.equals(p, s)) {
+                fields.add(name + " " + p + " vs " + s);
+            }
+        });
+        if (!Objects.equals(primary.getPassword(), shadow.getPassword())) {
+            fields.add("password");
+        }
+        return fields.isEmpty() ? null : "user " + primary.getId() + " " + String.join(", ", fields);
+    }
+
+    private static Long instant(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+}
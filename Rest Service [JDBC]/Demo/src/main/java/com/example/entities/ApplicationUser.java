@@ -1,5 +1,8 @@
 package com.example.entities;
 
+import com.example.data.mapping.GeneratedId;
+import com.example.data.mapping.MappedColumn;
+import com.example.data.mapping.RowMapping;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -7,14 +10,19 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.*;
 import java.sql.Date;
 
+@RowMapping
 public class ApplicationUser implements UserDetails {
 
+    @GeneratedId
     private Long id;
 
+    @MappedColumn(updatable = false)
     private String login;
 
+    @MappedColumn(updatable = false)
     private String password;
 
+    @MappedColumn(updatable = false)
     private Long balance;
 
     private String firstName;
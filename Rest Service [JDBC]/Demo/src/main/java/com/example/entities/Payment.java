@@ -1,11 +1,16 @@
 package com.example.entities;
 
+import com.example.data.mapping.GeneratedId;
+import com.example.data.mapping.MappedColumn;
+import com.example.data.mapping.RowMapping;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.Date;
 
+@RowMapping
 public class Payment {
 
+        @GeneratedId
         private Long id;
 
         private Date date;
@@ -15,6 +20,7 @@ public class Payment {
         private long amount;
 
         @JsonIgnore
+        @MappedColumn(value = "user_id", selectable = false, updatable = false)
         private ApplicationUser user;
 
         public  Payment() {}
@@ -31,6 +37,10 @@ public class Payment {
                 return id;
         }
 
+        public void setId(Long id) {
+                this.id = id;
+        }
+
         public Date getDate() {
                 return date;
         }
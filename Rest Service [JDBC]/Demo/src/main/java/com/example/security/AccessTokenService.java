@@ -0,0 +1,98 @@
+package com.example.security;
+
+import com.example.api.dto.AccessToken;
+import com.example.entities.ApplicationUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed access tokens of the form {@code payload.signature},
+ * where the payload carries the user id, the expiry and the login. Verification needs neither
+ * the database nor the password encoder.
+ */
+@Component
+public class AccessTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenService.class);
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final String TOKEN_TYPE = "Bearer";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec signingKey;
+
+    private final Duration ttl;
+
+    public AccessTokenService(
+            @Value("${security.token.secret:}") String secret,
+            @Value("${security.token.ttl:15m}") Duration ttl) {
+        byte[] key;
+        if (secret.isBlank()) {
+            log.warn("security.token.secret is not set, access tokens will only be valid on this instance");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        this.signingKey = new SecretKeySpec(key, MAC_ALGORITHM);
+        this.ttl = ttl;
+    }
+
+    public AccessToken issue(ApplicationUser user) {
+        long expiresAt = Instant.now().plus(ttl).getEpochSecond();
+        String payload = ENCODER.encodeToString(
+                (user.getId() + ":" + expiresAt + ":" + user.getLogin()).getBytes(StandardCharsets.UTF_8));
+        String token = payload + "." + ENCODER.encodeToString(sign(payload));
+        return new AccessToken(token, TOKEN_TYPE, ttl.toSeconds());
+    }
+
+    public Optional<ApplicationUser> verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                return Optional.empty();
+            }
+
+            String[] claims = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(":", 3);
+            if (claims.length != 3 || Long.parseLong(claims[1]) <= Instant.now().getEpochSecond()) {
+                return Optional.empty();
+            }
+            return Optional.of(new ApplicationUser(Long.parseLong(claims[0]), claims[2], null, null));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Couldn't sign access token", e);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.security;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.entities.ApplicationUser;
+import com.example.services.ReadYourWrites;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+@Component
+public class ApplicationUserDetailsService implements UserDetailsService {
+
+    private final ApplicationUserRepository repository;
+
+    private final PrincipalCache principalCache;
+
+    private final LoginLookupGuard loginLookupGuard;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ApplicationUserDetailsService(ApplicationUserRepository repository, PrincipalCache principalCache,
+                                         LoginLookupGuard loginLookupGuard, ReadYourWrites readYourWrites,
+                                         PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.principalCache = principalCache;
+        this.loginLookupGuard = loginLookupGuard;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!loginLookupGuard.mightExist(username)) {
+            throw new UsernameNotFoundException("Couldn't find user " + username);
+        }
+        return principalCache.get(username, this::findByLogin)
+                .orElseThrow(() -> new UsernameNotFoundException("Couldn't find user " + username));
+    }
+
+    private Optional<ApplicationUser> findByLogin(String login) {
+        Optional<ApplicationUser> user = readYourWrites.find(login,
+                () -> transactionTemplate.execute(status -> repository.findByLogin(login)));
+        if (user.isEmpty()) {
+            loginLookupGuard.unknown(login);
+        }
+        return user;
+    }
+
+}
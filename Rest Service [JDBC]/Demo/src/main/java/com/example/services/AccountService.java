@@ -1,18 +1,29 @@
 package com.example.services;
 
+import com.example.api.dto.AccessToken;
 import com.example.api.dto.PaymentData;
+import com.example.api.dto.SpendingSummary;
+import com.example.api.dto.SummaryBucket;
 import com.example.api.dto.UserData;
+import com.example.api.dto.UserLoginData;
 import com.example.api.dto.UserRegisterData;
 import com.example.data.ApplicationUserRepository;
 import com.example.data.PaymentRepository;
+import com.example.data.PaymentSummaryRow;
 import com.example.entities.ApplicationUser;
 import com.example.entities.Gender;
 import com.example.entities.Payment;
+import com.example.security.AccessTokenService;
+import com.example.security.LoginLookupGuard;
+import com.example.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -28,10 +39,35 @@ public class AccountService {
 
     private final PasswordEncoder passwordEncoder;
 
-    public AccountService(ApplicationUserRepository applicationUserRepository, PaymentRepository paymentRepository, PasswordEncoder passwordEncoder) {
+    private final AccessTokenService accessTokenService;
+
+    private final PrincipalCache principalCache;
+
+    private final LoginLookupGuard loginLookupGuard;
+
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    private final PaymentBatchWriter paymentBatchWriter;
+
+    private final HistoryPageCache historyPageCache;
+
+    private final ReadYourWrites readYourWrites;
+
+    public AccountService(ApplicationUserRepository applicationUserRepository, PaymentRepository paymentRepository,
+                          PasswordEncoder passwordEncoder, AccessTokenService accessTokenService,
+                          PrincipalCache principalCache, LoginLookupGuard loginLookupGuard,
+                          PasswordHashingExecutor passwordHashingExecutor, PaymentBatchWriter paymentBatchWriter,
+                          HistoryPageCache historyPageCache, ReadYourWrites readYourWrites) {
         this.applicationUserRepository = applicationUserRepository;
         this.paymentRepository = paymentRepository;
         this.passwordEncoder = passwordEncoder;
+        this.accessTokenService = accessTokenService;
+        this.principalCache = principalCache;
+        this.loginLookupGuard = loginLookupGuard;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.paymentBatchWriter = paymentBatchWriter;
+        this.historyPageCache = historyPageCache;
+        this.readYourWrites = readYourWrites;
     }
 
     public Optional<ApplicationUser> registrationNewUser(UserRegisterData registerData) {
@@ -39,38 +75,109 @@ public class AccountService {
         if (optionalUser.isEmpty()) {
             ApplicationUser user = new ApplicationUser();
             user.setLogin(registerData.login());
-            var encodePassword = passwordEncoder.encode(registerData.password());
+            var encodePassword = passwordHashingExecutor.encode(registerData.password());
             user.setPassword(encodePassword);
             user.setBalance(START_BALANCE);
-            return Optional.of(applicationUserRepository.save(user));
+            ApplicationUser savedUser = applicationUserRepository.save(user);
+            readYourWrites.wrote(savedUser.getLogin());
+            principalCache.invalidate(savedUser.getLogin());
+            loginLookupGuard.registered(savedUser.getLogin());
+            return Optional.of(savedUser);
         } else {
             return Optional.empty();
         }
     }
 
-    public String makingPayment(ApplicationUser user, PaymentData paymentData) {
+    public Optional<AccessToken> login(UserLoginData loginData) {
+        if (!loginLookupGuard.mightExist(loginData.login())) {
+            return Optional.empty();
+        }
+        // not in a read-only transaction, so the lookup runs on the primary and a miss is final
+        Optional<ApplicationUser> optionalUser = applicationUserRepository.findByLogin(loginData.login());
+        if (optionalUser.isEmpty()) {
+            loginLookupGuard.unknown(loginData.login());
+        }
+        return optionalUser
+                .filter(user -> passwordEncoder.matches(loginData.password(), user.getPassword()))
+                .map(accessTokenService::issue);
+    }
+
+    @Transactional(readOnly = true)
+    public ApplicationUser currentUser(ApplicationUser principal) {
+        return readYourWrites.read(principal.getLogin(), () -> applicationUserRepository.findById(principal.getId()))
+                .orElseThrow(() -> new UsernameNotFoundException("Couldn't find user " + principal.getLogin()));
+    }
+
+    public String makingPayment(ApplicationUser principal, PaymentData paymentData) {
         long amount = (long)(paymentData.amount() * 100);
-        long newBalance = user.getBalance() - amount;
-        if (newBalance >= 0) {
-            Payment payment = new Payment();
-            payment.setDate(new Date());
-            payment.setPhone(paymentData.phone());
-            payment.setAmount(amount);
-            payment.setUser(user);
-            paymentRepository.save(payment);
-
-            user.setBalance(newBalance);
-            applicationUserRepository.update(user);
+        Payment payment = new Payment();
+        payment.setDate(new Date());
+        payment.setPhone(paymentData.phone());
+        payment.setAmount(amount);
+        payment.setUser(principal);
+        boolean paid = paymentBatchWriter.isEnabled() ?
+                paymentBatchWriter.submit(payment).join() :
+                paymentRepository.debitAndSave(payment).isPresent();
+        if (paid) {
+            readYourWrites.wrote(principal.getLogin());
+            historyPageCache.invalidate(principal.getId());
             return "Payment is success";
         } else
             return "Not enough funds";
     }
 
-    public List<Payment> history(ApplicationUser user, PageRequest pageRequest) {
-        return paymentRepository.findAllByUser(user, pageRequest);
+    @Transactional(readOnly = true)
+    public List<PaymentData> history(ApplicationUser user, Date from, Date to, PageRequest pageRequest) {
+        return readYourWrites.read(user.getLogin(), () -> paymentRepository.findAllByUser(user, 0, from, to, pageRequest));
+    }
+
+    @Transactional(readOnly = true)
+    public HistoryPage historyPage(ApplicationUser user, Date from, Date to, PageRequest pageRequest) {
+        if (from != null || to != null) {
+            return HistoryPage.of(history(user, from, to, pageRequest));
+        }
+        return historyPageCache.get(user.getId(), pageRequest.getPageNumber(), pageRequest.getPageSize(),
+                () -> readYourWrites.read(user.getLogin(), () ->
+                        HistoryPage.of(history(user, null, null, pageRequest), paymentRepository.countByUser(user))));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PaymentData> history(ApplicationUser user, long afterPaymentId, Date from, Date to, int size) {
+        return readYourWrites.read(user.getLogin(),
+                () -> paymentRepository.findAllByUserAfter(user, afterPaymentId, from, to, size));
+    }
+
+    @Transactional(readOnly = true)
+    public HistoryPage historyPage(ApplicationUser user, long afterPaymentId, Date from, Date to, int size) {
+        return readYourWrites.read(user.getLogin(), () -> {
+            List<PaymentData> payments = history(user, afterPaymentId, from, to, size);
+            if (from != null || to != null) {
+                return HistoryPage.of(payments);
+            }
+            return HistoryPage.of(payments, paymentRepository.countByUser(user));
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public SpendingSummary summary(ApplicationUser user) {
+        List<SummaryBucket> days = new ArrayList<>();
+        List<SummaryBucket> months = new ArrayList<>();
+        List<SummaryBucket> phones = new ArrayList<>();
+        List<PaymentSummaryRow> rows = readYourWrites.read(user.getLogin(),
+                () -> paymentRepository.findSummaryByUser(user));
+        for (PaymentSummaryRow row : rows) {
+            switch (row.kind()) {
+                case "DAY" -> days.add(new SummaryBucket(row));
+                case "MONTH" -> months.add(new SummaryBucket(row));
+                case "PHONE" -> phones.add(new SummaryBucket(row));
+                default -> throw new IllegalStateException("Unknown summary kind " + row.kind());
+            }
+        }
+        return new SpendingSummary(days, months, phones);
     }
 
-    public ApplicationUser updateUserProfile(ApplicationUser user, UserData userData) {
+    public ApplicationUser updateUserProfile(ApplicationUser principal, UserData userData) {
+        ApplicationUser user = currentUser(principal);
         if (userData.firstName() != null) {
             user.setFirstName(userData.firstName());
         }
@@ -89,7 +196,10 @@ public class AccountService {
         if (userData.birthday() != null) {
             user.setBirthday(userData.birthday());
         }
-        return applicationUserRepository.update(user);
+        ApplicationUser updatedUser = applicationUserRepository.update(user);
+        readYourWrites.wrote(updatedUser.getLogin());
+        principalCache.invalidate(updatedUser.getLogin());
+        return updatedUser;
     }
 
 }
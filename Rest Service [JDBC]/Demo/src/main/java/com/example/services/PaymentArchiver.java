@@ -0,0 +1,385 @@
+package com.example.services;
+
+import com.example.data.archive.PaymentArchive;
+import com.example.data.archive.SegmentInfo;
+import com.example.data.archive.SegmentWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves months of {@code payment} older than {@code min-age} into segment files of the
+ * {@link PaymentArchive}, one segment per range of {@code user-range} user ids. Each run takes the
+ * oldest monthly partition not archived yet and archives every payment with an id up to the newest
+ * one of that month, so archived ids are always below the ids the hot table is read from.
+ * <p>
+ * Archiving is done in two phases, because other instances only see new segments when they reload
+ * the registry. A run writes and syncs the segments, then registers them together with the month;
+ * readers that know them skip hot rows up to their watermark. Only a later run, once the month has
+ * been registered for {@code detach-delay}, detaches and drops its partition, so no rows are
+ * deleted from the hot table and an instance never misses rows it has not yet found in the archive.
+ * A failed run leaves at most unregistered files, which readers ignore. Segments are never rewritten
+ * or removed by the archiver. Nothing is archived while {@code payment_legacy} is still attached,
+ * since its months can only be detached once {@link PaymentLegacySplitter} has split it.
+ */
+@Component
+public class PaymentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentArchiver.class);
+
+    private static final long LOCK_KEY = 0x7061796d656e74L;
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String LEGACY_PARTITION = "payment_legacy";
+
+    String FIND_PARTITIONS_SQL = """
+                SELECT child.relname AS partition_name,
+                       substring(pg_get_expr(child.relpartbound, child.oid) FROM 'TO \\(''([^'']*)''\\)')::TIMESTAMP
+                           AS partition_end
+                FROM pg_inherits
+                JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+                WHERE pg_inherits.inhparent = 'payment'::regclass
+                ORDER BY partition_end
+                """;
+
+    String FIND_ARCHIVED_PARTITIONS_SQL = """
+                SELECT partition_name FROM payment_archive_partition
+                """;
+
+    String FIND_WATERMARK_SQL = """
+                SELECT max(id) FROM %s
+                """;
+
+    String FIND_ARCHIVED_WATERMARK_SQL = """
+                SELECT COALESCE(max(max_payment_id), 0) FROM payment_archive_segment
+                """;
+
+    // Payments of the next month can get smaller ids than the last ones of this month; they are
+    // archived with it, a day of slack covers clock differences between instances.
+    String FIND_ARCHIVABLE_SQL = """
+                SELECT user_id, id, date, phone, amount
+                FROM payment
+                WHERE id > ? AND id <= ? AND date >= ? AND date < ?
+                ORDER BY user_id, id
+                """;
+
+    String LOCK_SQL = """
+                SELECT pg_advisory_xact_lock(?)
+                """;
+
+    String TRY_LOCK_SQL = """
+                SELECT pg_try_advisory_lock(?)
+                """;
+
+    String UNLOCK_SQL = """
+                SELECT pg_advisory_unlock(?)
+                """;
+
+    String INSERT_SEGMENT_SQL = """
+                INSERT INTO payment_archive_segment
+                    (file_name, min_user_id, max_user_id, max_payment_id, row_count)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+
+    String INSERT_PARTITION_SQL = """
+                INSERT INTO payment_archive_partition (partition_name, max_payment_id)
+                VALUES (?, ?)
+                ON CONFLICT DO NOTHING
+                """;
+
+    String FIND_DETACHABLE_SQL = """
+                SELECT partition_name FROM payment_archive_partition
+                WHERE detached_at IS NULL AND registered_at <= LOCALTIMESTAMP - make_interval(secs => ?)
+                ORDER BY partition_name
+                """;
+
+    // No row once detached, true while an interrupted DETACH ... CONCURRENTLY waits to be finalized.
+    String FIND_DETACH_PENDING_SQL = """
+                SELECT inhdetachpending FROM pg_inherits
+                WHERE inhrelid = to_regclass(?) AND inhparent = 'payment'::regclass
+                """;
+
+    String DETACH_SQL = """
+                ALTER TABLE payment DETACH PARTITION %s CONCURRENTLY
+                """;
+
+    String FINALIZE_DETACH_SQL = """
+                ALTER TABLE payment DETACH PARTITION %s FINALIZE
+                """;
+
+    String DROP_PARTITION_SQL = """
+                DROP TABLE IF EXISTS %s
+                """;
+
+    String MARK_DETACHED_SQL = """
+                UPDATE payment_archive_partition SET detached_at = LOCALTIMESTAMP WHERE partition_name = ?
+                """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PaymentArchive archive;
+
+    private final boolean enabled;
+
+    private final Duration minAge;
+
+    private final long userRange;
+
+    private final int maxSegmentRows;
+
+    private final Duration detachDelay;
+
+    public PaymentArchiver(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           PaymentArchive archive,
+                           @Value("${account.archive.enabled:false}") boolean enabled,
+                           @Value("${account.archive.min-age:90d}") Duration minAge,
+                           @Value("${account.archive.user-range:4096}") long userRange,
+                           @Value("${account.archive.max-segment-rows:4000000}") int maxSegmentRows,
+                           @Value("${account.archive.detach-delay:PT1H}") Duration detachDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archive = archive;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.userRange = userRange;
+        this.maxSegmentRows = maxSegmentRows;
+        this.detachDelay = detachDelay;
+    }
+
+    @Scheduled(cron = "${account.archive.cron:0 30 2 * * *}")
+    public void archiveOldPayments() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int detached = detachArchivedPartitions();
+            if (detached > 0) {
+                log.info("Detached {} archived payment partitions", detached);
+            }
+            long archived = archive();
+            if (archived > 0) {
+                log.info("Archived {} payments", archived);
+            }
+        } catch (IOException | DataAccessException e) {
+            log.warn("Could not archive old payments", e);
+        }
+    }
+
+    /**
+     * Second phase: detaches and drops the partitions of months registered at least
+     * {@code detach-delay} ago. Detaching concurrently cannot run in a transaction, so a session
+     * advisory lock keeps other instances from detaching the same partition.
+     */
+    int detachArchivedPartitions() {
+        List<String> detachable = jdbcTemplate.queryForList(FIND_DETACHABLE_SQL, String.class,
+                detachDelay.toSeconds());
+        if (detachable.isEmpty()) {
+            return 0;
+        }
+        Integer detached = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            var session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(session.queryForObject(TRY_LOCK_SQL, Boolean.class, LOCK_KEY))) {
+                return 0;
+            }
+            try {
+                for (String partition : detachable) {
+                    List<Boolean> pending = session.queryForList(FIND_DETACH_PENDING_SQL, Boolean.class, partition);
+                    if (!pending.isEmpty()) {
+                        session.execute((pending.get(0) ? FINALIZE_DETACH_SQL : DETACH_SQL).formatted(partition));
+                    }
+                    session.execute(DROP_PARTITION_SQL.formatted(partition));
+                    session.update(MARK_DETACHED_SQL, partition);
+                }
+                return detachable.size();
+            } finally {
+                session.queryForObject(UNLOCK_SQL, Boolean.class, LOCK_KEY);
+            }
+        });
+        return detached == null ? 0 : detached;
+    }
+
+    /**
+     * First phase: writes and registers the segments of the oldest month that is old enough and not
+     * archived yet. Its rows stay in the hot table until {@link #detachArchivedPartitions()}.
+     */
+    long archive() throws IOException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        List<String> archivedPartitions = jdbcTemplate.queryForList(FIND_ARCHIVED_PARTITIONS_SQL, String.class);
+        List<Map<String, Object>> partitions = jdbcTemplate.queryForList(FIND_PARTITIONS_SQL);
+        for (Map<String, Object> partition : partitions) {
+            String name = (String) partition.get("partition_name");
+            LocalDateTime end = ((Timestamp) partition.get("partition_end")).toLocalDateTime();
+            if (LEGACY_PARTITION.equals(name) || end.isAfter(cutoff)) {
+                return 0;
+            }
+            if (!archivedPartitions.contains(name)) {
+                return archive(name, end.minusMonths(1), end);
+            }
+        }
+        return 0;
+    }
+
+    private long archive(String partition, LocalDateTime start, LocalDateTime end) throws IOException {
+        Long watermark = jdbcTemplate.queryForObject(FIND_WATERMARK_SQL.formatted(partition), Long.class);
+        Long previous = jdbcTemplate.queryForObject(FIND_ARCHIVED_WATERMARK_SQL, Long.class);
+        if (previous == null) {
+            return 0;
+        }
+        List<SegmentInfo> segments = new ArrayList<>();
+        if (watermark != null && watermark > previous) {
+            Files.createDirectories(archive.getDirectory());
+            writeSegments(previous, watermark, start, end.plusDays(1), segments);
+        }
+
+        long registeredWatermark = segments.isEmpty() ? previous : watermark;
+        Boolean registered = transactionTemplate.execute(
+                status -> register(status, partition, previous, registeredWatermark, segments));
+        if (!Boolean.TRUE.equals(registered)) {
+            log.info("Partition {} was archived concurrently, discarding segments", partition);
+            deleteSegments(segments);
+            return 0;
+        }
+        archive.refresh();
+        return segments.stream().mapToLong(SegmentInfo::rowCount).sum();
+    }
+
+    private void writeSegments(long previous, long watermark, LocalDateTime from, LocalDateTime to,
+                               List<SegmentInfo> segments) throws IOException {
+        try (var roller = new SegmentRoller(watermark, segments)) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement statement = connection.prepareStatement(FIND_ARCHIVABLE_SQL);
+                        statement.setFetchSize(FETCH_SIZE);
+                        statement.setLong(1, previous);
+                        statement.setLong(2, watermark);
+                        statement.setTimestamp(3, Timestamp.valueOf(from));
+                        statement.setTimestamp(4, Timestamp.valueOf(to));
+                        return statement;
+                    },
+                    roller));
+            roller.finish();
+        } catch (UncheckedIOException e) {
+            deleteSegments(segments);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            deleteSegments(segments);
+            throw e;
+        }
+    }
+
+    private boolean register(TransactionStatus status, String partition, long previous, long watermark,
+                             List<SegmentInfo> segments) {
+        jdbcTemplate.query(LOCK_SQL, (ResultSetExtractor<Void>) rs -> null, LOCK_KEY);
+        if (!Long.valueOf(previous).equals(jdbcTemplate.queryForObject(FIND_ARCHIVED_WATERMARK_SQL, Long.class))
+                || jdbcTemplate.update(INSERT_PARTITION_SQL, partition, watermark) == 0) {
+            status.setRollbackOnly();
+            return false;
+        }
+        if (!segments.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SEGMENT_SQL, segments, segments.size(), (ps, segment) -> {
+                ps.setString(1, segment.fileName());
+                ps.setLong(2, segment.minUserId());
+                ps.setLong(3, segment.maxUserId());
+                ps.setLong(4, segment.maxPaymentId());
+                ps.setLong(5, segment.rowCount());
+            });
+        }
+        return true;
+    }
+
+    private void deleteSegments(List<SegmentInfo> segments) {
+        for (SegmentInfo segment : segments) {
+            try {
+                Files.deleteIfExists(archive.getDirectory().resolve(segment.fileName()));
+            } catch (IOException e) {
+                log.warn("Could not delete unregistered archive segment {}", segment.fileName(), e);
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment whenever the user id leaves the current range, or the segment is full
+     * and a new user begins. A user's payments of one run always end up in a single segment.
+     */
+    private final class SegmentRoller implements RowCallbackHandler, Closeable {
+
+        private final long watermark;
+
+        private final List<SegmentInfo> segments;
+
+        private SegmentWriter writer;
+
+        private long range;
+
+        SegmentRoller(long watermark, List<SegmentInfo> segments) {
+            this.watermark = watermark;
+            this.segments = segments;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long userId = rs.getLong("user_id");
+            try {
+                if (writer != null && userId != writer.getCurrentUserId()
+                        && (userId / userRange != range || writer.getRowCount() >= maxSegmentRows)) {
+                    finish();
+                }
+                if (writer == null) {
+                    range = userId / userRange;
+                    writer = new SegmentWriter(archive.getDirectory()
+                            .resolve("payments-" + watermark + "-" + userId + ".seg"));
+                }
+                writer.append(userId, rs.getLong("id"), rs.getTimestamp("date").getTime(),
+                        rs.getString("phone"), rs.getLong("amount"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                segments.add(writer.finish(watermark));
+                writer.close();
+                writer = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.example.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits {@code payment_legacy}, the partition V4 made of the table as it was before partitioning,
+ * into monthly partitions, so its months can be detached like any other. It starts a day after the
+ * bound of legacy, when no payment goes into it any more, and copies one month per run into a
+ * standalone {@code payment_YYYY_MM} table with the partition's indexes, a check of its bounds and
+ * a foreign key that is validated without blocking writes. Once every month is copied, one short
+ * transaction detaches and drops legacy and attaches the copies; their checks prove the bounds, so
+ * attaching scans nothing. A session advisory lock keeps other instances out while a run is busy.
+ */
+@Component
+public class PaymentLegacySplitter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentLegacySplitter.class);
+
+    private static final long LOCK_KEY = 0x6c6567616379L;
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'payment_'yyyy_MM");
+
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    String FIND_FROZEN_LEGACY_SQL = """
+                SELECT legacy_end FROM (
+                    SELECT substring(pg_get_expr(relpartbound, oid) FROM 'TO \\(''([^'']*)''\\)')::TIMESTAMP
+                        AS legacy_end
+                    FROM pg_class
+                    WHERE oid = to_regclass('payment_legacy') AND relispartition
+                ) legacy
+                WHERE legacy_end + INTERVAL '1 day' <= LOCALTIMESTAMP
+                """;
+
+    String TRY_LOCK_SQL = """
+                SELECT pg_try_advisory_lock(?)
+                """;
+
+    String UNLOCK_SQL = """
+                SELECT pg_advisory_unlock(?)
+                """;
+
+    String FIND_DATE_INDEX_SQL = """
+                SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass('payment_legacy_date_idx')
+                """;
+
+    // Only the month range copies need it; legacy keeps taking reads and writes while it is built.
+    String CREATE_DATE_INDEX_SQL = """
+                CREATE INDEX CONCURRENTLY payment_legacy_date_idx ON payment_legacy (date)
+                """;
+
+    String DROP_DATE_INDEX_SQL = """
+                DROP INDEX CONCURRENTLY payment_legacy_date_idx
+                """;
+
+    String FIND_FIRST_MONTH_SQL = """
+                SELECT date_trunc('month', min(date)) FROM payment_legacy
+                """;
+
+    // convalidated: no row when the copy does not exist, null when it has no foreign key yet.
+    String FIND_COPY_SQL = """
+                SELECT fk.convalidated
+                FROM pg_class copied
+                LEFT JOIN pg_constraint fk ON fk.conrelid = copied.oid AND fk.contype = 'f'
+                WHERE copied.oid = to_regclass(?)
+                """;
+
+    String COPY_MONTH_SQL = """
+                CREATE TABLE %1$s (LIKE payment INCLUDING DEFAULTS);
+                INSERT INTO %1$s (id, date, phone, amount, user_id)
+                SELECT id, date, phone, amount, user_id FROM payment_legacy
+                WHERE date >= '%2$s' AND date < '%3$s';
+                ALTER TABLE %1$s ADD CONSTRAINT %1$s_date_check CHECK (date >= '%2$s' AND date < '%3$s');
+                CREATE INDEX %1$s_user_id_id_idx ON %1$s (user_id, id) INCLUDE (date, phone, amount);
+                CREATE INDEX %1$s_user_id_date_idx ON %1$s (user_id, date);
+                """;
+
+    String ADD_FOREIGN_KEY_SQL = """
+                ALTER TABLE %1$s ADD CONSTRAINT %1$s_user_id_fkey
+                    FOREIGN KEY (user_id) REFERENCES application_user (id) ON DELETE CASCADE NOT VALID
+                """;
+
+    // Users deleted between the copy and the foreign key were only cascaded to legacy.
+    String DELETE_ORPHANS_SQL = """
+                DELETE FROM %1$s copied
+                WHERE NOT EXISTS (SELECT 1 FROM application_user WHERE application_user.id = copied.user_id)
+                """;
+
+    String VALIDATE_FOREIGN_KEY_SQL = """
+                ALTER TABLE %1$s VALIDATE CONSTRAINT %1$s_user_id_fkey
+                """;
+
+    String SWAP_LOCK_TIMEOUT_SQL = """
+                SET LOCAL lock_timeout = '5s'
+                """;
+
+    String DETACH_LEGACY_SQL = """
+                ALTER TABLE payment DETACH PARTITION payment_legacy
+                """;
+
+    String ATTACH_COPY_SQL = """
+                ALTER TABLE payment ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s')
+                """;
+
+    String DROP_LEGACY_SQL = """
+                DROP TABLE payment_legacy
+                """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+
+    public PaymentLegacySplitter(JdbcTemplate jdbcTemplate,
+                                 @Value("${account.payment-partitions.split-legacy:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(cron = "${account.payment-partitions.split-cron:0 15 * * * *}")
+    public void splitLegacyPartition() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Timestamp> legacyEnd = jdbcTemplate.queryForList(FIND_FROZEN_LEGACY_SQL, Timestamp.class);
+            if (legacyEnd.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                split(new JdbcTemplate(new SingleConnectionDataSource(connection, true)),
+                        YearMonth.from(legacyEnd.get(0).toLocalDateTime()));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not split payment_legacy into monthly partitions", e);
+        }
+    }
+
+    private void split(JdbcTemplate session, YearMonth legacyEnd) {
+        if (!Boolean.TRUE.equals(session.queryForObject(TRY_LOCK_SQL, Boolean.class, LOCK_KEY))) {
+            return;
+        }
+        try {
+            var transactionTemplate = new TransactionTemplate(
+                    new DataSourceTransactionManager(session.getDataSource()));
+            ensureDateIndex(session);
+            List<YearMonth> months = legacyMonths(session, legacyEnd);
+            for (YearMonth month : months) {
+                List<Boolean> copy = session.queryForList(FIND_COPY_SQL, Boolean.class, partitionName(month));
+                if (copy.isEmpty() || !Boolean.TRUE.equals(copy.get(0))) {
+                    completeCopy(session, transactionTemplate, month, copy);
+                    return;
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                session.execute(SWAP_LOCK_TIMEOUT_SQL);
+                session.execute(DETACH_LEGACY_SQL);
+                for (YearMonth month : months) {
+                    session.execute(ATTACH_COPY_SQL.formatted(partitionName(month),
+                            bound(month), bound(month.plusMonths(1))));
+                }
+                session.execute(DROP_LEGACY_SQL);
+            });
+            log.info("Replaced payment_legacy with {} monthly partitions", months.size());
+        } finally {
+            session.queryForObject(UNLOCK_SQL, Boolean.class, LOCK_KEY);
+        }
+    }
+
+    private void ensureDateIndex(JdbcTemplate session) {
+        List<Boolean> valid = session.queryForList(FIND_DATE_INDEX_SQL, Boolean.class);
+        if (valid.equals(List.of(true))) {
+            return;
+        }
+        if (!valid.isEmpty()) {
+            // left invalid by a build that was interrupted
+            session.execute(DROP_DATE_INDEX_SQL);
+        }
+        session.execute(CREATE_DATE_INDEX_SQL);
+    }
+
+    private List<YearMonth> legacyMonths(JdbcTemplate session, YearMonth legacyEnd) {
+        Timestamp first = session.queryForObject(FIND_FIRST_MONTH_SQL, Timestamp.class);
+        List<YearMonth> months = new ArrayList<>();
+        if (first == null) {
+            return months;
+        }
+        for (YearMonth month = YearMonth.from(first.toLocalDateTime()); month.isBefore(legacyEnd);
+                month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        return months;
+    }
+
+    private void completeCopy(JdbcTemplate session, TransactionTemplate transactionTemplate, YearMonth month,
+                              List<Boolean> copy) {
+        String name = partitionName(month);
+        if (copy.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    session.execute(COPY_MONTH_SQL.formatted(name, bound(month), bound(month.plusMonths(1)))));
+        }
+        if (copy.isEmpty() || copy.get(0) == null) {
+            session.execute(ADD_FOREIGN_KEY_SQL.formatted(name));
+        }
+        session.execute(DELETE_ORPHANS_SQL.formatted(name));
+        session.execute(VALIDATE_FOREIGN_KEY_SQL.formatted(name));
+        log.info("Copied {} out of payment_legacy", name);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_NAME.format(month);
+    }
+
+    private static String bound(YearMonth month) {
+        return BOUND.format(month.atDay(1).atStartOfDay());
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.example.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps monthly partitions of {@code payment} created ahead of time, so inserts never hit a month
+ * without a partition. Runs once on startup and then daily; creating a partition that already
+ * exists is a no-op, so several instances may run it concurrently.
+ */
+@Component
+public class PaymentPartitionMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentPartitionMaintainer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int monthsAhead;
+
+    public PaymentPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                      @Value("${account.payment-partitions.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${account.payment-partitions.cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject("SELECT create_payment_partitions(?)",
+                    Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                log.info("Created {} payment partitions", created);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not create upcoming payment partitions", e);
+        }
+    }
+
+}
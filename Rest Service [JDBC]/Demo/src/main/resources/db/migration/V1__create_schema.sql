@@ -1,7 +1,3 @@
-DROP TABLE IF EXISTS payment;
-DROP TABLE IF EXISTS application_user;
-DROP TYPE IF EXISTS gender_type;
-
 CREATE TYPE gender_type AS ENUM (
     'MALE',
     'FEMALE'
@@ -0,0 +1,31 @@
+ALTER TABLE payment DROP CONSTRAINT IF EXISTS payment_user_id_fkey;
+
+ALTER TABLE application_user ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS application_user_id_seq;
+ALTER TABLE application_user ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE application_user ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+SELECT setval(pg_get_serial_sequence('application_user', 'id'), COALESCE(MAX(id), 0) + 1, false)
+FROM application_user;
+
+ALTER TABLE payment ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS payment_id_seq;
+ALTER TABLE payment ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE payment ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+SELECT setval(pg_get_serial_sequence('payment', 'id'), COALESCE(MAX(id), 0) + 1, false)
+FROM payment;
+
+ALTER TABLE payment
+    ALTER COLUMN user_id TYPE BIGINT,
+    ALTER COLUMN user_id SET NOT NULL,
+    ALTER COLUMN date SET NOT NULL,
+    ALTER COLUMN phone SET NOT NULL,
+    ALTER COLUMN amount SET NOT NULL;
+
+ALTER TABLE application_user DROP CONSTRAINT IF EXISTS application_user_id_key;
+
+ALTER TABLE payment
+    ADD CONSTRAINT payment_user_id_fkey FOREIGN KEY (user_id) REFERENCES application_user (id) ON DELETE CASCADE;
+
+CREATE INDEX payment_user_id_id_idx ON payment (user_id, id) INCLUDE (date, phone, amount);
+
+CREATE INDEX payment_user_id_date_idx ON payment (user_id, date);
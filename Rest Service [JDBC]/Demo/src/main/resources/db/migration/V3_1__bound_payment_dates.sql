@@ -0,0 +1,13 @@
+-- Prepares V4, which turns payment into a partition of a monthly partitioned table. Attaching a
+-- table scans it under an ACCESS EXCLUSIVE lock unless a validated CHECK already proves the
+-- partition bound, so the bound is added here NOT VALID, which only takes a brief lock, and V3_2
+-- validates it in its own transaction while reads and writes go on. The bound leaves at least a
+-- month of slack, so payments made until V4 runs still satisfy it; V4 attaches up to exactly it.
+
+DO
+$$
+BEGIN
+    EXECUTE format('ALTER TABLE payment ADD CONSTRAINT payment_date_bound CHECK (date < %L) NOT VALID',
+                   date_trunc('month', LOCALTIMESTAMP) + INTERVAL '2 months');
+END
+$$;
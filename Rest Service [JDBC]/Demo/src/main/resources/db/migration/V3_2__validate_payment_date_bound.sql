@@ -0,0 +1,3 @@
+-- Scans payment holding only a SHARE UPDATE EXCLUSIVE lock; see V3_1.
+
+ALTER TABLE payment VALIDATE CONSTRAINT payment_date_bound;
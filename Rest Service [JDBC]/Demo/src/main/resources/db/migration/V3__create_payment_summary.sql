@@ -0,0 +1,24 @@
+CREATE TABLE payment_summary
+(
+    user_id       BIGINT      NOT NULL REFERENCES application_user (id) ON DELETE CASCADE,
+    kind          VARCHAR(5)  NOT NULL CHECK (kind IN ('DAY', 'MONTH', 'PHONE')),
+    bucket        VARCHAR(64) NOT NULL,
+    total_amount  BIGINT      NOT NULL,
+    payment_count BIGINT      NOT NULL,
+    PRIMARY KEY (user_id, kind, bucket)
+);
+
+INSERT INTO payment_summary (user_id, kind, bucket, total_amount, payment_count)
+SELECT user_id, 'DAY', to_char(date, 'YYYY-MM-DD'), SUM(amount), COUNT(*)
+FROM payment
+GROUP BY user_id, to_char(date, 'YYYY-MM-DD');
+
+INSERT INTO payment_summary (user_id, kind, bucket, total_amount, payment_count)
+SELECT user_id, 'MONTH', to_char(date, 'YYYY-MM'), SUM(amount), COUNT(*)
+FROM payment
+GROUP BY user_id, to_char(date, 'YYYY-MM');
+
+INSERT INTO payment_summary (user_id, kind, bucket, total_amount, payment_count)
+SELECT user_id, 'PHONE', phone, SUM(amount), COUNT(*)
+FROM payment
+GROUP BY user_id, phone;
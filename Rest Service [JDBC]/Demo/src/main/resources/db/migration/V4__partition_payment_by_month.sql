@@ -0,0 +1,88 @@
+-- payment becomes a table range-partitioned by month of date. Existing rows are not copied: the old
+-- table is attached as payment_legacy, the partition for everything below the bound V3_1 put on its
+-- dates. The validated check proves that bound, so attaching does not scan the table. Partitions for
+-- the following months are created by create_payment_partitions(), which PaymentPartitionMaintainer
+-- calls on startup and daily.
+--
+-- A monthly partition that no longer needs to be online can be removed without touching the rest of
+-- the table:
+--     ALTER TABLE payment DETACH PARTITION payment_2024_01 CONCURRENTLY;
+-- The months in payment_legacy cannot be detached one by one. Once no payment goes into it any more,
+-- PaymentLegacySplitter of the JDBC build copies it month by month into payment_YYYY_MM tables and
+-- swaps them in for it, after which every month is a partition of its own. Until then only the
+-- months created by create_payment_partitions() can be detached.
+--
+-- Ids come from a plain sequence: identity columns are not supported on partitioned tables before
+-- PostgreSQL 17, and a primary key would have to include date.
+
+ALTER TABLE payment RENAME TO payment_legacy;
+ALTER INDEX payment_user_id_id_idx RENAME TO payment_legacy_user_id_id_idx;
+ALTER INDEX payment_user_id_date_idx RENAME TO payment_legacy_user_id_date_idx;
+
+ALTER TABLE payment_legacy ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE payment_id_seq AS BIGINT;
+SELECT setval('payment_id_seq', COALESCE(MAX(id), 0) + 1, false)
+FROM payment_legacy;
+
+CREATE TABLE payment
+(
+    id      BIGINT      NOT NULL DEFAULT nextval('payment_id_seq'),
+    date    TIMESTAMP   NOT NULL,
+    phone   VARCHAR(25) NOT NULL,
+    amount  BIGINT      NOT NULL,
+    user_id BIGINT      NOT NULL,
+    CONSTRAINT payment_user_id_fkey FOREIGN KEY (user_id) REFERENCES application_user (id) ON DELETE CASCADE
+) PARTITION BY RANGE (date);
+
+ALTER SEQUENCE payment_id_seq OWNED BY payment.id;
+
+CREATE INDEX payment_user_id_id_idx ON payment (user_id, id) INCLUDE (date, phone, amount);
+
+CREATE INDEX payment_user_id_date_idx ON payment (user_id, date);
+
+-- The partition ends exactly at the checked bound: payments at or past it could go nowhere else.
+DO
+$$
+DECLARE
+    legacy_end TIMESTAMP;
+BEGIN
+    SELECT substring(pg_get_constraintdef(oid) FROM '''([^'']*)''')::TIMESTAMP
+    INTO STRICT legacy_end
+    FROM pg_constraint
+    WHERE conrelid = 'payment_legacy'::regclass AND conname = 'payment_date_bound';
+    EXECUTE format('ALTER TABLE payment ATTACH PARTITION payment_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                   legacy_end);
+END
+$$;
+
+ALTER TABLE payment_legacy DROP CONSTRAINT payment_date_bound;
+
+CREATE FUNCTION create_payment_partitions(months_ahead INTEGER) RETURNS INTEGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    month_start    TIMESTAMP;
+    partition_name TEXT;
+    created        INTEGER := 0;
+BEGIN
+    FOR i IN 0..months_ahead
+        LOOP
+            month_start := date_trunc('month', LOCALTIMESTAMP) + make_interval(months => i);
+            partition_name := 'payment_' || to_char(month_start, 'YYYY_MM');
+            CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+            BEGIN
+                EXECUTE format('CREATE TABLE %I PARTITION OF payment FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, month_start + INTERVAL '1 month');
+                created := created + 1;
+            EXCEPTION
+                -- the month is still covered by payment_legacy
+                WHEN invalid_object_definition THEN NULL;
+                -- another instance created it concurrently
+                WHEN duplicate_table THEN NULL;
+            END;
+        END LOOP;
+    RETURN created;
+END
+$$;
+
+SELECT create_payment_partitions(3);
@@ -0,0 +1,11 @@
+CREATE TABLE payment_archive_segment
+(
+    file_name      VARCHAR(255) PRIMARY KEY,
+    min_user_id    BIGINT    NOT NULL,
+    max_user_id    BIGINT    NOT NULL,
+    max_payment_id BIGINT    NOT NULL,
+    row_count      BIGINT    NOT NULL,
+    created_at     TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX payment_archive_segment_max_payment_id_idx ON payment_archive_segment (max_payment_id);
@@ -0,0 +1,12 @@
+-- Number of payments of each user, incremented by the debit statement so history responses can
+-- report a total without counting rows. Backfilled from the monthly rollup, which also covers
+-- payments already moved to the archive.
+ALTER TABLE application_user ADD COLUMN payment_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE application_user
+SET payment_count = summary.payment_count
+FROM (SELECT user_id, SUM(payment_count) AS payment_count
+      FROM payment_summary
+      WHERE kind = 'MONTH'
+      GROUP BY user_id) AS summary
+WHERE application_user.id = summary.user_id;
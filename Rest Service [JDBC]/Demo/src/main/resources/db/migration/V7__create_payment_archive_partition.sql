@@ -0,0 +1,11 @@
+-- Months of payment taken over by the archive. PaymentArchiver registers a month together with its
+-- segments and detaches the partition only in a later run, once every instance has reloaded the
+-- segment registry and stopped reading those rows from the hot table.
+
+CREATE TABLE payment_archive_partition
+(
+    partition_name VARCHAR(63) PRIMARY KEY,
+    max_payment_id BIGINT    NOT NULL,
+    registered_at  TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+    detached_at    TIMESTAMP
+);
@@ -0,0 +1,72 @@
+package com.example.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ConnectionLimitingDataSourceTest {
+
+    DataSource pool = mock(DataSource.class);
+
+    Connection connection = mock(Connection.class);
+
+    ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1, Duration.ofMillis(50));
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        doReturn(connection).when(pool).getConnection();
+    }
+
+    @Test
+    public void getConnection_AllPermitsHeld_TimesOutWithoutAskingPool() throws SQLException {
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        verify(pool).getConnection();
+    }
+
+    @Test
+    public void getConnection_AfterClose_ReusesPermit() throws SQLException {
+        Connection first = dataSource.getConnection();
+        first.close();
+        first.close();
+
+        dataSource.getConnection();
+
+        verify(connection, times(2)).close();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+    }
+
+    @Test
+    public void getConnection_PoolFails_ReleasesPermit() throws SQLException {
+        doThrow(new SQLException("refused")).doReturn(connection).when(pool).getConnection();
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    public void connection_DelegatesToPooledConnection() throws SQLException {
+        Connection limited = dataSource.getConnection();
+
+        limited.setReadOnly(true);
+
+        verify(connection).setReadOnly(true);
+        assertEquals(limited, limited);
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.example.data.archive;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArchivingPaymentRepositoryTest {
+
+    @Mock
+    PaymentRepository delegate;
+
+    @Mock
+    PaymentArchive archive;
+
+    @Mock
+    ObjectProvider<PaymentArchive> archiveProvider;
+
+    ArchivingPaymentRepository repository;
+
+    ApplicationUser user = new ApplicationUser(7L, "login", "password", 0L);
+
+    @BeforeEach
+    public void setUp() {
+        doReturn(archive).when(archiveProvider).getObject();
+        repository = new ArchivingPaymentRepository(delegate, archiveProvider);
+    }
+
+    @Test
+    public void findAllByUser_NothingArchived_DelegatesPage() {
+        PageRequest pageRequest = PageRequest.of(2, 10);
+        doReturn(new PaymentArchive.Page(List.of(), 0, 0)).when(archive).find(7, 0, null, null, 20, 10);
+        doReturn(List.of(payment(40))).when(delegate).findAllByUser(user, 0, null, null, pageRequest);
+
+        assertEquals(List.of(payment(40)), repository.findAllByUser(user, 0, null, null, pageRequest));
+    }
+
+    @Test
+    public void findAllByUser_PagePastArchive_ShiftsHotOffsetByArchivedCount() {
+        doReturn(new PaymentArchive.Page(List.of(), 25, 30)).when(archive).find(7, 0, null, null, 30, 10);
+        var captor = ArgumentCaptor.forClass(PageRequest.class);
+        doReturn(List.of(payment(40))).when(delegate)
+                .findAllByUser(eq(user), eq(30L), isNull(), isNull(), captor.capture());
+
+        repository.findAllByUser(user, 0, null, null, PageRequest.of(3, 10));
+
+        assertEquals(5, captor.getValue().getOffset());
+        assertEquals(10, captor.getValue().getPageSize());
+    }
+
+    @Test
+    public void findAllByUser_PageStraddlesArchive_CompletesFromHotRows() {
+        doReturn(new PaymentArchive.Page(List.of(payment(1), payment(2)), 12, 30)).when(archive)
+                .find(7, 0, null, null, 10, 5);
+        doReturn(List.of(payment(40), payment(41), payment(42))).when(delegate)
+                .findAllByUserAfter(user, 30, null, null, 3);
+
+        List<PaymentData> page = repository.findAllByUser(user, 0, null, null, PageRequest.of(2, 5));
+
+        assertEquals(List.of(payment(1), payment(2), payment(40), payment(41), payment(42)), page);
+    }
+
+    @Test
+    public void findAllByUserAfter_ArchiveFillsPage_SkipsHotTable() {
+        doReturn(new PaymentArchive.Page(List.of(payment(4), payment(5)), 2, 30)).when(archive)
+                .find(7, 3, null, null, 0, 2);
+
+        assertEquals(List.of(payment(4), payment(5)), repository.findAllByUserAfter(user, 3, null, null, 2));
+        verify(delegate, never()).findAllByUserAfter(any(), anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void findAllByUserAfter_CursorInsideArchive_ReadsHotRowsAboveWatermark() {
+        doReturn(new PaymentArchive.Page(List.of(), 0, 30)).when(archive).find(7, 3, null, null, 0, 2);
+        doReturn(List.of(payment(31), payment(32))).when(delegate).findAllByUserAfter(user, 30, null, null, 2);
+
+        assertEquals(List.of(payment(31), payment(32)), repository.findAllByUserAfter(user, 3, null, null, 2));
+    }
+
+    @Test
+    public void forEachByUser_PartitionNotDetachedYet_SkipsHotRowsUpToWatermark() {
+        doReturn(30L).when(archive).forEach(eq(user), any());
+        doAnswer(invocation -> {
+            Consumer<Payment> action = invocation.getArgument(1);
+            action.accept(new Payment(30L, new Timestamp(30), "+79876543210", 100L, user));
+            action.accept(new Payment(31L, new Timestamp(31), "+79876543210", 100L, user));
+            return null;
+        }).when(delegate).forEachByUser(eq(user), any());
+        List<Long> ids = new ArrayList<>();
+
+        repository.forEachByUser(user, payment -> ids.add(payment.getId()));
+
+        assertEquals(List.of(31L), ids);
+    }
+
+    private static PaymentData payment(long id) {
+        return new PaymentData(id, new Date(id), "+79876543210", 1.0);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.example.data.archive;
+
+import com.example.api.dto.PaymentData;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class PaymentArchiveTest {
+
+    static final long BASE_MILLIS = 1700000000000L;
+
+    @TempDir
+    Path directory;
+
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    public void find_Unfiltered_SkipsOffsetAcrossGranules() throws IOException {
+        PaymentArchive archive = archiveWith(segment("a.seg", 1, 600, 600));
+
+        PaymentArchive.Page page = archive.find(7, 0, null, null, 300, 10);
+
+        assertEquals(List.of(301L, 302L, 303L, 304L, 305L, 306L, 307L, 308L, 309L, 310L), ids(page.rows()));
+        assertEquals(310, page.matched());
+        PaymentData first = page.rows().get(0);
+        assertEquals(new Date(BASE_MILLIS + 301_000), first.date());
+        assertEquals("+7900000001", first.phone());
+        assertEquals(3.01, first.amount());
+    }
+
+    @Test
+    public void find_PageSpanningRuns_ContinuesInNextSegment() throws IOException {
+        PaymentArchive archive = archiveWith(segment("a.seg", 1, 600, 600), segment("b.seg", 601, 610, 610));
+
+        PaymentArchive.Page page = archive.find(7, 0, null, null, 595, 10);
+
+        assertEquals(List.of(596L, 597L, 598L, 599L, 600L, 601L, 602L, 603L, 604L, 605L), ids(page.rows()));
+    }
+
+    @Test
+    public void find_AfterIdAndDateRange_ReturnsMatchingRowsAndTotal() throws IOException {
+        PaymentArchive archive = archiveWith(segment("a.seg", 1, 600, 600));
+
+        PaymentArchive.Page page = archive.find(7, 220,
+                new Date(BASE_MILLIS + 200_000), new Date(BASE_MILLIS + 250_000), 0, 100);
+
+        assertEquals(29, page.rows().size());
+        assertEquals(221L, page.rows().get(0).id());
+        assertEquals(249L, page.rows().get(28).id());
+        assertEquals(29, page.matched());
+    }
+
+    @Test
+    public void find_UserWithoutArchivedPayments_MatchesNothing() throws IOException {
+        PaymentArchive archive = archiveWith(segment("a.seg", 1, 600, 600));
+
+        PaymentArchive.Page page = archive.find(6, 0, null, null, 0, 10);
+
+        assertTrue(page.rows().isEmpty());
+        assertEquals(0, page.matched());
+    }
+
+    @Test
+    public void forEach_VisitsArchivedPaymentsOfUser() throws IOException {
+        PaymentArchive archive = archiveWith(segment("a.seg", 1, 600, 600));
+        var user = new ApplicationUser(7L, "login", "password", 0L);
+        List<Payment> payments = new ArrayList<>();
+
+        archive.forEach(user, payments::add);
+
+        assertEquals(600, payments.size());
+        assertEquals(600L, payments.get(599).getId());
+        assertSame(user, payments.get(599).getUser());
+    }
+
+    // Users 5 and 9 surround user 7, whose payments have ids firstId..lastId.
+    private SegmentInfo segment(String name, long firstId, long lastId, long maxPaymentId) throws IOException {
+        try (var writer = new SegmentWriter(directory.resolve(name))) {
+            writer.append(5, firstId * 10_000, BASE_MILLIS, "+7900000000", 100);
+            for (long id = firstId; id <= lastId; id++) {
+                writer.append(7, id, BASE_MILLIS + id * 1000, "+790000000" + (id % 10), id);
+            }
+            writer.append(9, lastId * 10_000, BASE_MILLIS, "+7900000000", 100);
+            return writer.finish(maxPaymentId);
+        }
+    }
+
+    private PaymentArchive archiveWith(SegmentInfo... segments) {
+        doReturn(List.of(segments)).when(jdbcTemplate).query(anyString(), any(RowMapper.class));
+        var archive = new PaymentArchive(jdbcTemplate, directory.toString());
+        archive.refresh();
+        return archive;
+    }
+
+    private static List<Long> ids(List<PaymentData> rows) {
+        return rows.stream().map(PaymentData::id).toList();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.example.data.impl;
+
+import com.example.config.ConnectionCountingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+
+@ExtendWith(MockitoExtension.class)
+class ApplicationUserJDBCRepositoryTest {
+
+    @Mock
+    DataSource pool;
+
+    @Mock
+    Connection connection;
+
+    @Mock
+    PreparedStatement statement;
+
+    @Mock
+    ResultSet resultSet;
+
+    DataSource dataSource;
+
+    ApplicationUserJDBCRepository repository;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSource = new ConnectionCountingDataSource(pool);
+        repository = new ApplicationUserJDBCRepository(dataSource);
+        ConnectionCountingDataSource.reset();
+
+        Mockito.doReturn(connection).when(pool).getConnection();
+        Mockito.doReturn(statement).when(connection).prepareStatement(anyString());
+        Mockito.doReturn(resultSet).when(statement).executeQuery();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ConnectionCountingDataSource.reset();
+    }
+
+    @Test
+    public void findById_InsideTransaction_ReusesTransactionConnection() throws Exception {
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(repository.findById(1L).isEmpty());
+            assertTrue(repository.findByLogin("login").isEmpty());
+        });
+
+        assertEquals(1, ConnectionCountingDataSource.acquiredByCurrentThread());
+        Mockito.verify(pool).getConnection();
+        Mockito.verify(connection).commit();
+        Mockito.verify(connection).close();
+    }
+
+    @Test
+    public void findById_WithoutTransaction_ReleasesConnectionAfterEachCall() throws Exception {
+        assertTrue(repository.findById(1L).isEmpty());
+        assertTrue(repository.findByLogin("login").isEmpty());
+
+        assertEquals(2, ConnectionCountingDataSource.acquiredByCurrentThread());
+        Mockito.verify(connection, Mockito.times(2)).close();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.data.impl;
+
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentJDBCRepositoryTest {
+
+    @Mock
+    DataSource dataSource;
+
+    @Mock
+    Connection connection;
+
+    @Mock
+    PreparedStatement statement;
+
+    @Mock
+    ResultSet resultSet;
+
+    PaymentJDBCRepository repository;
+
+    ApplicationUser user = new ApplicationUser(1L, "login", "password", 100000L);
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository = new PaymentJDBCRepository(dataSource);
+
+        Mockito.doReturn(connection).when(dataSource).getConnection();
+        Mockito.doReturn(statement).when(connection).prepareStatement(anyString());
+        Mockito.doReturn(resultSet).when(statement).executeQuery();
+    }
+
+    @Test
+    public void forEachByUser_CursorFails_ThrowsAndClosesConnection() throws Exception {
+        Mockito.doThrow(new SQLException("connection reset")).when(resultSet).next();
+        List<Payment> exported = new ArrayList<>();
+
+        assertThrows(DataAccessResourceFailureException.class, () -> repository.forEachByUser(user, exported::add));
+
+        assertTrue(exported.isEmpty());
+        Mockito.verify(connection).close();
+    }
+
+    @Test
+    public void countByUser_QueryFails_ThrowsInsteadOfZero() throws Exception {
+        Mockito.doThrow(new SQLException("connection reset")).when(resultSet).next();
+
+        assertThrows(DataAccessResourceFailureException.class, () -> repository.countByUser(user));
+    }
+
+    @Test
+    public void findAllByUser_QueryFails_ThrowsInsteadOfEmptyPage() throws Exception {
+        Mockito.doThrow(new SQLException("connection reset")).when(resultSet).next();
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> repository.findAllByUser(user, 0, null, null, PageRequest.of(0, 20)));
+    }
+
+    @Test
+    public void findAllByUserAfter_QueryFails_ThrowsInsteadOfEmptyPage() throws Exception {
+        Mockito.doThrow(new SQLException("connection reset")).when(resultSet).next();
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> repository.findAllByUserAfter(user, 0, null, null, 20));
+    }
+
+    @Test
+    public void findSummaryByUser_QueryFails_ThrowsInsteadOfEmptySummary() throws Exception {
+        Mockito.doThrow(new SQLException("connection reset")).when(resultSet).next();
+
+        assertThrows(DataAccessResourceFailureException.class, () -> repository.findSummaryByUser(user));
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.example.data.mapping.processor;
+
+import com.example.entities.ApplicationUser;
+import com.example.entities.ApplicationUserRows;
+import com.example.entities.Gender;
+import com.example.entities.Payment;
+import com.example.entities.PaymentRows;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class RowMappingProcessorTest {
+
+    ResultSet resultSet = mock(ResultSet.class);
+
+    PreparedStatement statement = mock(PreparedStatement.class);
+
+    @Test
+    public void map_ApplicationUserRow_ReadsColumnsByIndex() throws Exception {
+        doReturn(7L).when(resultSet).getLong(ApplicationUserRows.ID);
+        doReturn("login").when(resultSet).getString(ApplicationUserRows.LOGIN);
+        doReturn(150L).when(resultSet).getLong(ApplicationUserRows.BALANCE);
+        doReturn("FEMALE").when(resultSet).getString(ApplicationUserRows.GENDER);
+        doReturn(Date.valueOf("1990-01-02")).when(resultSet).getDate(ApplicationUserRows.BIRTHDAY);
+
+        ApplicationUser user = ApplicationUserRows.map(resultSet);
+
+        assertEquals(7L, user.getId());
+        assertEquals("login", user.getLogin());
+        assertEquals(150L, user.getBalance());
+        assertEquals(Gender.FEMALE, user.getGender());
+        assertEquals(Date.valueOf("1990-01-02"), user.getBirthday());
+        assertNull(user.getEmail());
+        verify(resultSet, never()).getString(anyString());
+    }
+
+    @Test
+    public void map_NullGenderAndBalance_LeavesFieldsNull() throws Exception {
+        doReturn(true).when(resultSet).wasNull();
+
+        ApplicationUser user = ApplicationUserRows.map(resultSet);
+
+        assertNull(user.getId());
+        assertNull(user.getBalance());
+        assertNull(user.getGender());
+    }
+
+    @Test
+    public void bindUpdate_ApplicationUser_BindsSetColumnsThenId() throws Exception {
+        var user = new ApplicationUser(7L, "login", "password", 0L);
+        user.setFirstName("Ivan");
+        user.setGender(Gender.MALE);
+
+        assertEquals(8, ApplicationUserRows.bindUpdate(statement, 1, user));
+
+        InOrder order = Mockito.inOrder(statement);
+        order.verify(statement).setString(1, "Ivan");
+        order.verify(statement).setObject(5, "MALE", Types.OTHER);
+        order.verify(statement).setObject(7, 7L, Types.BIGINT);
+        assertEquals("first_name = ?, last_name = ?, patronymic = ?, email = ?, gender = ?, birthday = ?",
+                ApplicationUserRows.UPDATE_SET);
+    }
+
+    @Test
+    public void bindInsert_Payment_BindsUserIdAfterOwnColumns() throws Exception {
+        var payment = new Payment(null, new Timestamp(1000), "+79876543210", 250L,
+                new ApplicationUser(7L, "login", "password", 0L));
+
+        assertEquals(5, PaymentRows.bindInsert(statement, 1, payment));
+
+        verify(statement).setTimestamp(1, new Timestamp(1000));
+        verify(statement).setString(2, "+79876543210");
+        verify(statement).setLong(3, 250L);
+        verify(statement).setObject(4, 7L, Types.BIGINT);
+        assertEquals("id, date, phone, amount", PaymentRows.COLUMNS);
+        assertEquals("date, phone, amount, user_id", PaymentRows.INSERT_COLUMNS);
+    }
+
+    @Test
+    public void parameters_Payment_NamedAfterColumns() {
+        var payment = new Payment(3L, new Timestamp(1000), "+79876543210", 250L,
+                new ApplicationUser(7L, "login", "password", 0L));
+
+        var parameters = PaymentRows.parameters(payment);
+
+        assertEquals(7L, parameters.getValue("user_id"));
+        assertEquals(250L, parameters.getValue("amount"));
+        assertEquals(Types.TIMESTAMP, parameters.getSqlType("date"));
+        assertFalse(parameters.hasValue("user"));
+    }
+
+}
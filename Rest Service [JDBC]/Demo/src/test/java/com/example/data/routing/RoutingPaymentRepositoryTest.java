@@ -0,0 +1,145 @@
+package com.example.data.routing;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class RoutingPaymentRepositoryTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    PaymentRepository dataSource = mock(PaymentRepository.class);
+
+    PaymentRepository jdbcTemplate = mock(PaymentRepository.class);
+
+    Map<DataAccessStrategy, PaymentRepository> implementations = new EnumMap<>(Map.of(
+            DataAccessStrategy.DATA_SOURCE, dataSource,
+            DataAccessStrategy.JDBC_TEMPLATE, jdbcTemplate));
+
+    ApplicationUser user = new ApplicationUser(7L, "login", "password", 0L);
+
+    PageRequest pageRequest = PageRequest.of(0, 10);
+
+    RepositoryRouter router = new RepositoryRouter(meterRegistry, DataAccessStrategy.DATA_SOURCE, null, 0, 1, 8);
+
+    @AfterEach
+    public void tearDown() {
+        router.destroy();
+    }
+
+    @Test
+    public void findAllByUser_NoShadow_ReadsPrimaryOnly() {
+        doReturn(List.of(payment(1, new Date(1000)))).when(dataSource).findAllByUser(user, 0, null, null, pageRequest);
+
+        var repository = new RoutingPaymentRepository(router, implementations);
+
+        assertEquals(List.of(payment(1, new Date(1000))), repository.findAllByUser(user, 0, null, null, pageRequest));
+        verify(jdbcTemplate, never()).findAllByUser(user, 0, null, null, pageRequest);
+        assertEquals(1, meterRegistry.get("repository.calls")
+                .tag("strategy", "DATA_SOURCE").tag("role", "primary").timer().count());
+    }
+
+    @Test
+    public void findAllByUser_ShadowReturnsSameRows_CountsMatch() {
+        router.route(DataAccessStrategy.DATA_SOURCE, DataAccessStrategy.JDBC_TEMPLATE, 100);
+        doReturn(List.of(payment(1, new Date(1000)))).when(dataSource).findAllByUser(user, 0, null, null, pageRequest);
+        doReturn(List.of(payment(1, new Timestamp(1000)))).when(jdbcTemplate).findAllByUser(user, 0, null, null, pageRequest);
+
+        new RoutingPaymentRepository(router, implementations).findAllByUser(user, 0, null, null, pageRequest);
+
+        verify(jdbcTemplate, timeout(5000)).findAllByUser(user, 0, null, null, pageRequest);
+        assertEquals(1, awaitShadowReads("match"));
+    }
+
+    @Test
+    public void countByUser_ShadowDiffers_CountsMismatchAndReturnsPrimary() {
+        router.route(DataAccessStrategy.DATA_SOURCE, DataAccessStrategy.JDBC_TEMPLATE, 100);
+        doReturn(3L).when(dataSource).countByUser(user);
+        doReturn(4L).when(jdbcTemplate).countByUser(user);
+
+        assertEquals(3L, new RoutingPaymentRepository(router, implementations).countByUser(user));
+
+        assertEquals(1, awaitShadowReads("mismatch"));
+        assertEquals(1, meterRegistry.get("repository.calls")
+                .tag("strategy", "JDBC_TEMPLATE").tag("role", "shadow").timer().count());
+    }
+
+    @Test
+    public void route_SwitchesPrimaryForLaterCalls() {
+        var repository = new RoutingPaymentRepository(router, implementations);
+
+        router.route(DataAccessStrategy.JDBC_TEMPLATE, null, 0);
+        repository.countByUser(user);
+
+        verify(jdbcTemplate).countByUser(user);
+        verify(dataSource, never()).countByUser(user);
+        assertThrows(IllegalArgumentException.class,
+                () -> router.route(DataAccessStrategy.JDBC_TEMPLATE, DataAccessStrategy.JDBC_TEMPLATE, 10));
+    }
+
+    @Test
+    public void findById_CallerEditsReturnedUser_ComparesUserAsRead() throws Exception {
+        router.route(DataAccessStrategy.DATA_SOURCE, DataAccessStrategy.JDBC_TEMPLATE, 100);
+        var primary = mock(ApplicationUserRepository.class);
+        var shadow = mock(ApplicationUserRepository.class);
+        var edited = new CountDownLatch(1);
+        doReturn(Optional.of(new ApplicationUser(7L, "login", "password", 0L))).when(primary).findById(7L);
+        doAnswer(invocation -> {
+            edited.await(5, TimeUnit.SECONDS);
+            return Optional.of(new ApplicationUser(7L, "login", "password", 0L));
+        }).when(shadow).findById(7L);
+        var repository = new RoutingApplicationUserRepository(router, new EnumMap<>(Map.of(
+                DataAccessStrategy.DATA_SOURCE, primary,
+                DataAccessStrategy.JDBC_TEMPLATE, shadow)));
+
+        repository.findById(7L).orElseThrow().setFirstName("Ivan");
+        edited.countDown();
+
+        assertEquals(1, awaitShadowReads("match"));
+    }
+
+    @Test
+    public void difference_UsersDifferingInBalance_NamesFieldButNotPassword() {
+        var primary = new ApplicationUser(7L, "login", "hash1", 100L);
+        var shadow = new ApplicationUser(7L, "login", "hash2", 90L);
+
+        assertEquals("user 7 balance 100 vs 90, password", ShadowComparison.difference(primary, shadow));
+        assertNull(ShadowComparison.difference(primary, new ApplicationUser(7L, "login", "hash1", 100L)));
+    }
+
+    private double awaitShadowReads(String result) {
+        long deadline = System.currentTimeMillis() + 5000;
+        var counter = meterRegistry.find("repository.shadow.reads").tag("result", result);
+        while ((counter.counter() == null || counter.counter().count() == 0) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        return meterRegistry.get("repository.shadow.reads").tag("result", result).counter().count();
+    }
+
+    private static PaymentData payment(long id, Date date) {
+        return new PaymentData(id, date, "+79876543210", 1.0);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.example.security;
+
+import com.example.entities.ApplicationUser;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokenServiceTest {
+
+    @Test
+    public void verify_IssuedToken_ReturnsPrincipal() {
+        var service = new AccessTokenService("", Duration.ofMinutes(15));
+        var applicationUser = new ApplicationUser(1L, "+79876543210", "hash", 100000L);
+
+        var accessToken = service.issue(applicationUser);
+        var optionalUser = service.verify(accessToken.accessToken());
+
+        assertEquals("Bearer", accessToken.tokenType());
+        assertEquals(900, accessToken.expiresIn());
+        assertTrue(optionalUser.isPresent());
+        assertEquals(1L, optionalUser.get().getId());
+        assertEquals("+79876543210", optionalUser.get().getLogin());
+    }
+
+    @Test
+    public void verify_TamperedToken_ReturnsEmptyOptional() {
+        var service = new AccessTokenService("", Duration.ofMinutes(15));
+        var token = service.issue(new ApplicationUser(1L, "+79876543210", "hash", 100000L)).accessToken();
+        var forged = service.issue(new ApplicationUser(2L, "+79876543211", "hash", 100000L)).accessToken();
+
+        var tampered = forged.substring(0, forged.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertTrue(service.verify(tampered).isEmpty());
+        assertTrue(service.verify("not-a-token").isEmpty());
+    }
+
+    @Test
+    public void verify_TokenFromAnotherKey_ReturnsEmptyOptional() {
+        var issuer = new AccessTokenService("", Duration.ofMinutes(15));
+        var verifier = new AccessTokenService("", Duration.ofMinutes(15));
+
+        var accessToken = issuer.issue(new ApplicationUser(1L, "+79876543210", "hash", 100000L));
+
+        assertTrue(verifier.verify(accessToken.accessToken()).isEmpty());
+    }
+
+    @Test
+    public void verify_ExpiredToken_ReturnsEmptyOptional() {
+        var service = new AccessTokenService("", Duration.ZERO);
+
+        var accessToken = service.issue(new ApplicationUser(1L, "+79876543210", "hash", 100000L));
+
+        assertTrue(service.verify(accessToken.accessToken()).isEmpty());
+    }
+
+}
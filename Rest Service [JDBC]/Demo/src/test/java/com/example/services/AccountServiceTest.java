@@ -1,29 +1,43 @@
 package com.example.services;
 
+import com.example.api.dto.AccessToken;
 import com.example.api.dto.PaymentData;
+import com.example.api.dto.SummaryBucket;
 import com.example.api.dto.UserData;
+import com.example.api.dto.UserLoginData;
 import com.example.api.dto.UserRegisterData;
 import com.example.data.ApplicationUserRepository;
 import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
 import com.example.entities.ApplicationUser;
 import com.example.entities.Gender;
 import com.example.entities.Payment;
+import com.example.security.AccessTokenService;
+import com.example.security.LoginLookupGuard;
+import com.example.security.PrincipalCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 
 @ExtendWith(MockitoExtension.class)
 class AccountServiceTest {
@@ -37,6 +51,27 @@ class AccountServiceTest {
     @Mock
     PasswordEncoder encoder;
 
+    @Mock
+    AccessTokenService accessTokenService;
+
+    @Mock
+    PrincipalCache principalCache;
+
+    @Mock
+    LoginLookupGuard loginLookupGuard;
+
+    @Mock
+    PasswordHashingExecutor passwordHashingExecutor;
+
+    @Mock
+    PaymentBatchWriter paymentBatchWriter;
+
+    @Mock
+    HistoryPageCache historyPageCache;
+
+    @Spy
+    ReadYourWrites readYourWrites = new ReadYourWrites(new SimpleMeterRegistry(), List.of(), Duration.ofSeconds(5), 100);
+
     @InjectMocks
     AccountService service;
 
@@ -48,7 +83,7 @@ class AccountServiceTest {
         Mockito.doReturn(Optional.empty()).when(applicationUserRepository)
                 .findByLogin(registerData.login());
         Mockito.doReturn(applicationUser).when(applicationUserRepository).save(applicationUser);
-        Mockito.doReturn("password").when(encoder).encode(any());
+        Mockito.doReturn("password").when(passwordHashingExecutor).encode(any());
 
         Optional<ApplicationUser> optionalUser = service.registrationNewUser(registerData);
 
@@ -82,14 +117,17 @@ class AccountServiceTest {
         var payment = new Payment(1L, new Date(), "+79876543210", 15000, applicationUser);
         var paymentData = new PaymentData(payment);
 
+        Mockito.doReturn(Optional.of(new PaymentResult(1L, 85000L))).when(paymentRepository).debitAndSave(any());
+
         String responseString = service.makingPayment(applicationUser, paymentData);
 
         assertNotNull(responseString);
         assertEquals("Payment is success", responseString);
+        Mockito.verify(historyPageCache).invalidate(1L);
 
-        Mockito.verify(paymentRepository).save(any());
-        Mockito.verify(applicationUserRepository).update(any());
-        Mockito.verifyNoMoreInteractions(applicationUserRepository);
+        Mockito.verify(paymentRepository).debitAndSave(Mockito.argThat(p ->
+                p.getAmount() == 15000L && p.getUser() == applicationUser && "+79876543210".equals(p.getPhone())));
+        Mockito.verifyNoInteractions(applicationUserRepository);
         Mockito.verifyNoMoreInteractions(paymentRepository);
     }
 
@@ -99,11 +137,35 @@ class AccountServiceTest {
         var payment = new Payment(1L, new Date(), "+79876543210", 150000, applicationUser);
         var paymentData = new PaymentData(payment);
 
+        Mockito.doReturn(Optional.empty()).when(paymentRepository).debitAndSave(any());
+
         String responseString = service.makingPayment(applicationUser, paymentData);
 
         assertNotNull(responseString);
         assertEquals("Not enough funds", responseString);
+        Mockito.verifyNoInteractions(historyPageCache);
 
+        Mockito.verify(paymentRepository).debitAndSave(any());
+        Mockito.verifyNoInteractions(applicationUserRepository);
+        Mockito.verifyNoMoreInteractions(paymentRepository);
+    }
+
+    @Test
+    public void makingPayment_BatchWriterEnabled_ReturnsWriterResult() {
+        var applicationUser = new ApplicationUser(1L, "login1", "password1", 100000L);
+        var payment = new Payment(1L, new Date(), "+79876543210", 15000, applicationUser);
+        var paymentData = new PaymentData(payment);
+
+        Mockito.doReturn(true).when(paymentBatchWriter).isEnabled();
+        Mockito.doReturn(CompletableFuture.completedFuture(true)).when(paymentBatchWriter).submit(any());
+
+        String responseString = service.makingPayment(applicationUser, paymentData);
+
+        assertEquals("Payment is success", responseString);
+        Mockito.verify(historyPageCache).invalidate(1L);
+
+        Mockito.verify(paymentBatchWriter).submit(Mockito.argThat(p ->
+                p.getAmount() == 15000L && p.getUser() == applicationUser && "+79876543210".equals(p.getPhone())));
         Mockito.verifyNoInteractions(applicationUserRepository);
         Mockito.verifyNoInteractions(paymentRepository);
     }
@@ -113,22 +175,115 @@ class AccountServiceTest {
         var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
         var pageRequest = PageRequest.of(0, 5, Sort.by("id"));
         var payments = List.of(
-                new Payment(1L, new Date(), "+79876543210", 1500, applicationUser),
-                new Payment(2L, new Date(), "+79876543210", 1500, applicationUser)
+                new PaymentData(1L, new Date(), "+79876543210", 15.0),
+                new PaymentData(2L, new Date(), "+79876543210", 15.0)
         );
 
-        Mockito.doReturn(payments).when(paymentRepository).findAllByUser(applicationUser, pageRequest);
+        Mockito.doReturn(payments).when(paymentRepository).findAllByUser(applicationUser, 0, null, null, pageRequest);
 
-        var returnsPayments = service.history(applicationUser, pageRequest);
+        var returnsPayments = service.history(applicationUser, null, null, pageRequest);
 
         assertNotNull(returnsPayments);
         assertEquals(payments, returnsPayments);
 
-        Mockito.verify(paymentRepository).findAllByUser(any(), any());
+        Mockito.verify(paymentRepository).findAllByUser(any(), anyLong(), any(), any(), any());
         Mockito.verifyNoMoreInteractions(applicationUserRepository);
         Mockito.verifyNoMoreInteractions(paymentRepository);
     }
 
+    @Test
+    public void historyPage_CacheMiss_LoadsPageFromRepository() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var pageRequest = PageRequest.of(0, 5, Sort.by("id"));
+        var payments = List.of(
+                new PaymentData(1L, new Date(), "+79876543210", 15.0),
+                new PaymentData(2L, new Date(), "+79876543210", 15.0)
+        );
+
+        Mockito.doReturn(payments).when(paymentRepository).findAllByUser(applicationUser, 0, null, null, pageRequest);
+        Mockito.doReturn(12L).when(paymentRepository).countByUser(applicationUser);
+        Mockito.doAnswer(invocation -> invocation.<Supplier<HistoryPage>>getArgument(3).get())
+                .when(historyPageCache).get(Mockito.eq(1L), Mockito.eq(0), Mockito.eq(5), any());
+
+        var historyPage = service.historyPage(applicationUser, null, null, pageRequest);
+
+        assertEquals(payments, historyPage.payments());
+        assertEquals(2L, historyPage.lastPaymentId());
+        assertEquals(12L, historyPage.totalCount());
+    }
+
+    @Test
+    public void historyPage_DateRange_BypassesCache() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var pageRequest = PageRequest.of(0, 5, Sort.by("id"));
+        var from = new Date(1700000000000L);
+        var payments = List.of(new PaymentData(1L, from, "+79876543210", 15.0));
+
+        Mockito.doReturn(payments).when(paymentRepository).findAllByUser(applicationUser, 0, from, null, pageRequest);
+
+        var historyPage = service.historyPage(applicationUser, from, null, pageRequest);
+
+        assertEquals(payments, historyPage.payments());
+        assertNull(historyPage.totalCount());
+        Mockito.verifyNoInteractions(historyPageCache);
+        Mockito.verify(paymentRepository, Mockito.never()).countByUser(any());
+    }
+
+    @Test
+    public void history_AfterPaymentId_ReturnsNextPayments() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var payments = List.of(
+                new PaymentData(3L, new Date(), "+79876543210", 15.0)
+        );
+
+        Mockito.doReturn(payments).when(paymentRepository).findAllByUserAfter(applicationUser, 2L, null, null, 5);
+
+        var returnsPayments = service.history(applicationUser, 2L, null, null, 5);
+
+        assertEquals(payments, returnsPayments);
+
+        Mockito.verify(paymentRepository).findAllByUserAfter(applicationUser, 2L, null, null, 5);
+        Mockito.verifyNoMoreInteractions(paymentRepository);
+    }
+
+    @Test
+    public void historyPage_AfterPaymentId_IncludesTotalCount() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var payments = List.of(
+                new PaymentData(3L, new Date(), "+79876543210", 15.0)
+        );
+
+        Mockito.doReturn(payments).when(paymentRepository).findAllByUserAfter(applicationUser, 2L, null, null, 5);
+        Mockito.doReturn(3L).when(paymentRepository).countByUser(applicationUser);
+
+        var historyPage = service.historyPage(applicationUser, 2L, null, null, 5);
+
+        assertEquals(payments, historyPage.payments());
+        assertEquals(3L, historyPage.totalCount());
+    }
+
+    @Test
+    public void summary_GroupsRollupRowsByKind() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var rows = List.of(
+                new PaymentSummaryRow("DAY", "2024-03-01", 1500, 1),
+                new PaymentSummaryRow("DAY", "2024-03-02", 2550, 2),
+                new PaymentSummaryRow("MONTH", "2024-03", 4050, 3),
+                new PaymentSummaryRow("PHONE", "+79876543210", 4050, 3)
+        );
+
+        Mockito.doReturn(rows).when(paymentRepository).findSummaryByUser(applicationUser);
+
+        var summary = service.summary(applicationUser);
+
+        assertEquals(List.of(new SummaryBucket("2024-03-01", 15.0, 1), new SummaryBucket("2024-03-02", 25.5, 2)),
+                summary.days());
+        assertEquals(List.of(new SummaryBucket("2024-03", 40.5, 3)), summary.months());
+        assertEquals(List.of(new SummaryBucket("+79876543210", 40.5, 3)), summary.phones());
+        Mockito.verify(paymentRepository).findSummaryByUser(applicationUser);
+        Mockito.verifyNoMoreInteractions(paymentRepository);
+    }
+
     @Test
     public void updateUserProfile_ReturnsValidApplicationUser() {
         var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
@@ -140,6 +295,7 @@ class AccountServiceTest {
         applicationUser.setBirthday(java.sql.Date.valueOf("2001-11-1"));
         var userData = new UserData(applicationUser);
 
+        Mockito.doReturn(Optional.of(applicationUser)).when(applicationUserRepository).findById(1L);
         Mockito.doReturn(applicationUser).when(applicationUserRepository).update(applicationUser);
 
         var updateUser = service.updateUserProfile(applicationUser, userData);
@@ -147,8 +303,67 @@ class AccountServiceTest {
         assertNotNull(updateUser);
         assertEquals(applicationUser, updateUser);
 
+        Mockito.verify(applicationUserRepository).findById(1L);
         Mockito.verify(applicationUserRepository).update(any());
         Mockito.verifyNoMoreInteractions(applicationUserRepository);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void login_ValidPassword_ReturnsAccessToken() {
+        var loginData = new UserLoginData("login", "password");
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+        var accessToken = new AccessToken("token", "Bearer", 900);
+
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("login");
+        Mockito.doReturn(Optional.of(applicationUser)).when(applicationUserRepository).findByLogin("login");
+        Mockito.doReturn(true).when(encoder).matches("password", "hash");
+        Mockito.doReturn(accessToken).when(accessTokenService).issue(applicationUser);
+
+        var optionalToken = service.login(loginData);
+
+        assertTrue(optionalToken.isPresent());
+        assertEquals(accessToken, optionalToken.get());
+    }
+
+    @Test
+    public void login_InvalidPassword_ReturnsEmptyOptional() {
+        var loginData = new UserLoginData("login", "wrong");
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("login");
+        Mockito.doReturn(Optional.of(applicationUser)).when(applicationUserRepository).findByLogin("login");
+        Mockito.doReturn(false).when(encoder).matches("wrong", "hash");
+
+        var optionalToken = service.login(loginData);
+
+        assertFalse(optionalToken.isPresent());
+        Mockito.verifyNoInteractions(accessTokenService);
+    }
+
+    @Test
+    public void login_MissingLogin_RecordsUnknownLogin() {
+        var loginData = new UserLoginData("missing", "password");
+
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("missing");
+        Mockito.doReturn(Optional.empty()).when(applicationUserRepository).findByLogin("missing");
+
+        var optionalToken = service.login(loginData);
+
+        assertFalse(optionalToken.isPresent());
+        Mockito.verify(loginLookupGuard).unknown("missing");
+        Mockito.verifyNoInteractions(accessTokenService);
+    }
+
+    @Test
+    public void login_UnknownLogin_SkipsRepository() {
+        var loginData = new UserLoginData("unknown", "password");
+
+        Mockito.doReturn(false).when(loginLookupGuard).mightExist("unknown");
+
+        var optionalToken = service.login(loginData);
+
+        assertFalse(optionalToken.isPresent());
+        Mockito.verifyNoInteractions(applicationUserRepository);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.example.services;
+
+import com.example.api.dto.PaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryPageCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    HistoryPageCache cache = new HistoryPageCache(meterRegistry, DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+
+    HistoryPage page = new HistoryPage(List.of(new PaymentData(new Date(), "+79876543210", 15.0)), 1L, null);
+
+    AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void get_CachedPage_SkipsLoader() {
+        assertSame(page, cache.get(1L, 0, 10, this::load));
+        assertSame(page, cache.get(1L, 0, 10, this::load));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("history.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("history.cache.requests").tag("result", "miss").counter().count());
+        assertTrue(meterRegistry.get("history.cache.weight").gauge().value() > 0);
+    }
+
+    @Test
+    public void invalidate_DropsAllPagesOfUserOnly() {
+        cache.get(1L, 0, 10, this::load);
+        cache.get(1L, 1, 10, this::load);
+        cache.get(2L, 0, 10, this::load);
+
+        cache.invalidate(1L);
+        cache.get(1L, 0, 10, this::load);
+        cache.get(1L, 1, 10, this::load);
+        cache.get(2L, 0, 10, this::load);
+
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void get_InvalidatedWhileLoading_DoesNotCacheStalePage() {
+        cache.get(1L, 0, 10, () -> {
+            cache.invalidate(1L);
+            return load();
+        });
+        cache.get(1L, 0, 10, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void get_LaterPagesCached_DoNotExtendTtlOfEarlierPages() throws InterruptedException {
+        var shortLived = new HistoryPageCache(meterRegistry, DataSize.ofMegabytes(1), Duration.ofMillis(200));
+
+        shortLived.get(1L, 0, 10, this::load);
+        Thread.sleep(120);
+        shortLived.get(1L, 1, 10, this::load);
+        Thread.sleep(120);
+        shortLived.get(1L, 0, 10, this::load);
+
+        assertEquals(3, loads.get());
+    }
+
+    private HistoryPage load() {
+        loads.incrementAndGet();
+        return page;
+    }
+
+}
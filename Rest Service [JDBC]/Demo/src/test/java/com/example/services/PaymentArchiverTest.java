@@ -0,0 +1,79 @@
+package com.example.services;
+
+import com.example.data.archive.PaymentArchive;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PaymentArchiverTest {
+
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    PaymentArchive archive = new PaymentArchive(jdbcTemplate, "payment-archive");
+
+    PaymentArchiver archiver = new PaymentArchiver(jdbcTemplate, transactionManager, archive, true,
+            Duration.ofDays(90), 4096, 1000, Duration.ofHours(1));
+
+    @Test
+    public void archiveOldPayments_Disabled_DoesNotTouchDatabase() {
+        var disabled = new PaymentArchiver(jdbcTemplate, transactionManager, archive, false,
+                Duration.ofDays(90), 4096, 1000, Duration.ofHours(1));
+
+        disabled.archiveOldPayments();
+
+        verifyNoInteractions(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    public void archive_LegacyPartitionStillAttached_WritesNothing() throws Exception {
+        doReturn(List.of()).when(jdbcTemplate).queryForList(archiver.FIND_ARCHIVED_PARTITIONS_SQL, String.class);
+        doReturn(List.of(partition("payment_legacy", LocalDateTime.now().minusYears(1)),
+                partition("payment_2020_01", LocalDateTime.now().minusYears(1))))
+                .when(jdbcTemplate).queryForList(archiver.FIND_PARTITIONS_SQL);
+
+        assertEquals(0, archiver.archive());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    public void archive_OldestMonthsRegisteredAndRestTooRecent_WritesNothing() throws Exception {
+        doReturn(List.of("payment_2020_01")).when(jdbcTemplate)
+                .queryForList(archiver.FIND_ARCHIVED_PARTITIONS_SQL, String.class);
+        doReturn(List.of(partition("payment_2020_01", LocalDateTime.now().minusYears(1)),
+                partition("payment_2020_02", LocalDateTime.now().minusDays(10))))
+                .when(jdbcTemplate).queryForList(archiver.FIND_PARTITIONS_SQL);
+
+        assertEquals(0, archiver.archive());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    public void detachArchivedPartitions_NoneRegisteredLongEnough_DetachesNothing() {
+        doReturn(List.of()).when(jdbcTemplate).queryForList(archiver.FIND_DETACHABLE_SQL, String.class, 3600L);
+
+        assertEquals(0, archiver.detachArchivedPartitions());
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+    }
+
+    private static Map<String, Object> partition(String name, LocalDateTime end) {
+        return Map.of("partition_name", name, "partition_end", Timestamp.valueOf(end));
+    }
+
+}
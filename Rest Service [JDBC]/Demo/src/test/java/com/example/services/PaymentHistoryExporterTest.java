@@ -0,0 +1,88 @@
+package com.example.services;
+
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PaymentHistoryExporterTest {
+
+    PaymentRepository repository = mock(PaymentRepository.class);
+
+    ObjectMapper objectMapper = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    PaymentHistoryExporter exporter = new PaymentHistoryExporter(repository, objectMapper,
+            new ReadYourWrites(new SimpleMeterRegistry(), List.of(), Duration.ofSeconds(5), 100));
+
+    ApplicationUser user = new ApplicationUser(1L, "login", "password", 100000L);
+
+    Date date = new Date(1700000000000L);
+
+    @Test
+    public void export_Ndjson_WritesOneJsonObjectPerLine() throws Exception {
+        givenPayments(new Payment(1L, date, "+79876543210", 1500, user),
+                new Payment(2L, date, "+79876543211", 250, user));
+        var out = new ByteArrayOutputStream();
+
+        exporter.export(user, HistoryExportFormat.NDJSON, out);
+
+        assertEquals("""
+                {"date":"2023-11-14T22:13:20.000+00:00","phone":"+79876543210","amount":15.0}
+                {"date":"2023-11-14T22:13:20.000+00:00","phone":"+79876543211","amount":2.5}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void export_Csv_WritesHeaderAndRows() throws Exception {
+        givenPayments(new Payment(1L, date, "+79876543210", 1505, user));
+        var out = new ByteArrayOutputStream();
+
+        exporter.export(user, HistoryExportFormat.CSV, out);
+
+        assertEquals("""
+                date,phone,amount
+                2023-11-14T22:13:20Z,+79876543210,15.05
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void export_ClientDisconnects_ThrowsIOException() {
+        givenPayments(new Payment(1L, date, "+79876543210", 1500, user));
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> exporter.export(user, HistoryExportFormat.NDJSON, out));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenPayments(Payment... payments) {
+        doAnswer(invocation -> {
+            Consumer<Payment> action = invocation.getArgument(1);
+            List.of(payments).forEach(action);
+            return null;
+        }).when(repository).forEachByUser(eq(user), any(Consumer.class));
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.example.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PaymentLegacySplitterTest {
+
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    PaymentLegacySplitter splitter = new PaymentLegacySplitter(jdbcTemplate, true);
+
+    @Test
+    public void splitLegacyPartition_Disabled_DoesNotTouchDatabase() {
+        new PaymentLegacySplitter(jdbcTemplate, false).splitLegacyPartition();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void splitLegacyPartition_LegacyGoneOrStillReceivingPayments_DoesNothing() {
+        doReturn(List.of()).when(jdbcTemplate).queryForList(splitter.FIND_FROZEN_LEGACY_SQL, Timestamp.class);
+
+        splitter.splitLegacyPartition();
+
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    public void splitLegacyPartition_DatabaseUnavailable_DoesNotThrow() {
+        doThrow(new DataAccessResourceFailureException("down")).when(jdbcTemplate)
+                .queryForList(splitter.FIND_FROZEN_LEGACY_SQL, Timestamp.class);
+
+        assertDoesNotThrow(splitter::splitLegacyPartition);
+    }
+
+}
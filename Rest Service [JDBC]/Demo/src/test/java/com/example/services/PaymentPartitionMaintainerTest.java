@@ -0,0 +1,36 @@
+package com.example.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PaymentPartitionMaintainerTest {
+
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    PaymentPartitionMaintainer maintainer = new PaymentPartitionMaintainer(jdbcTemplate, 3);
+
+    @Test
+    public void createUpcomingPartitions_CallsDatabaseFunctionWithMonthsAhead() {
+        doReturn(1).when(jdbcTemplate).queryForObject("SELECT create_payment_partitions(?)", Integer.class, 3);
+
+        maintainer.createUpcomingPartitions();
+
+        verify(jdbcTemplate).queryForObject("SELECT create_payment_partitions(?)", Integer.class, 3);
+    }
+
+    @Test
+    public void createUpcomingPartitions_DatabaseUnavailable_DoesNotThrow() {
+        doThrow(new DataAccessResourceFailureException("down")).when(jdbcTemplate)
+                .queryForObject("SELECT create_payment_partitions(?)", Integer.class, 3);
+
+        assertDoesNotThrow(maintainer::createUpcomingPartitions);
+    }
+
+}
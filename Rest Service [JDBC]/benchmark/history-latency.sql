@@ -0,0 +1,68 @@
+-- History query latency against payment table size, with and without the (user_id, id) index.
+--
+-- Runs in a throwaway schema and drops it at the end. Repeat with a growing table, e.g.:
+--   docker compose exec -T db psql -U postgres -d test_db -v payments=100000   < benchmark/history-latency.sql
+--   docker compose exec -T db psql -U postgres -d test_db -v payments=1000000  < benchmark/history-latency.sql
+--   docker compose exec -T db psql -U postgres -d test_db -v payments=10000000 < benchmark/history-latency.sql
+--
+-- Every tenth payment belongs to user 1 (a heavy user); the rest are spread over 10000 users.
+-- Compare "Execution Time" of the same query across sizes: without the index it grows with the
+-- whole table, with the index it depends only on the page being read.
+
+\set ON_ERROR_STOP on
+\if :{?payments}
+\else
+\set payments 1000000
+\endif
+
+DROP SCHEMA IF EXISTS history_bench CASCADE;
+CREATE SCHEMA history_bench;
+SET search_path = history_bench;
+
+CREATE TABLE payment (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    date TIMESTAMP NOT NULL,
+    phone VARCHAR(25) NOT NULL,
+    amount BIGINT NOT NULL,
+    user_id BIGINT NOT NULL
+);
+
+INSERT INTO payment (date, phone, amount, user_id)
+SELECT now() - g * INTERVAL '1 second',
+       '+79876543210',
+       100,
+       CASE WHEN g % 10 = 0 THEN 1 ELSE 2 + g % 10000 END
+FROM generate_series(1, :payments) AS g;
+
+VACUUM ANALYZE payment;
+
+-- Half-way through the heavy user's history.
+SELECT :payments / 20 AS deep_offset \gset
+
+\echo === :payments payments, no index on user_id ===
+\echo --- typical user, first page
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payment WHERE user_id = 42 ORDER BY id LIMIT 10 OFFSET 0;
+\echo --- heavy user, deep offset page
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payment WHERE user_id = 1 ORDER BY id LIMIT 10 OFFSET :deep_offset;
+
+CREATE INDEX payment_user_id_id_idx ON payment (user_id, id) INCLUDE (date, phone, amount);
+CREATE INDEX payment_user_id_date_idx ON payment (user_id, date);
+VACUUM ANALYZE payment;
+
+SELECT id AS keyset_after FROM payment WHERE user_id = 1 ORDER BY id OFFSET :deep_offset - 1 LIMIT 1 \gset
+
+\echo === :payments payments, with (user_id, id) index ===
+\echo --- typical user, first page
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payment WHERE user_id = 42 ORDER BY id LIMIT 10 OFFSET 0;
+\echo --- heavy user, deep offset page
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payment WHERE user_id = 1 ORDER BY id LIMIT 10 OFFSET :deep_offset;
+\echo --- heavy user, same page by keyset
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payment WHERE user_id = 1 AND id > :keyset_after ORDER BY id LIMIT 10;
+
+RESET search_path;
+DROP SCHEMA history_bench CASCADE;
@@ -0,0 +1,156 @@
+package com.example.benchmark;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PostgreSQL for the benchmarks, with the schema created by Hibernate and seeded with
+ * {@link #USERS} users of {@link #PAYMENTS_PER_USER} payments each. Uses the database given by
+ * {@code -Dbenchmark.jdbc-url} (or {@code BENCHMARK_JDBC_URL}), e.g. the one from docker-compose.yml,
+ * and otherwise starts a throwaway container. Point it at a scratch database: benchmarks insert
+ * users and payments and never clean up. JMH forks do not inherit {@code -D} options, pass them with
+ * {@code -jvmArgsAppend}.
+ * <p>
+ * Only the data source, JPA and the repositories are started, without web, security or the services.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final int USERS = 10_000;
+
+    static final int PAYMENTS_PER_USER = 100;
+
+    static final String LOGIN_PREFIX = "+7000";
+
+    private static final String SEED_USERS_SQL = """
+            INSERT INTO application_user (login, password, balance)
+            SELECT ? || lpad(i::text, 7, '0'), 'password', 1000000000000000
+            FROM generate_series(1, ?) AS i
+            ON CONFLICT (login) DO NOTHING
+            """;
+
+    private static final String SEED_PAYMENTS_SQL = """
+            INSERT INTO payment (date, phone, amount, user_id)
+            SELECT LOCALTIMESTAMP - make_interval(mins => n), '+79876543210', 100 + n, u.id
+            FROM application_user u CROSS JOIN generate_series(1, ?) AS n
+            WHERE u.login LIKE ? || '%'
+            """;
+
+    private final PostgreSQLContainer<?> container;
+
+    private final ConfigurableApplicationContext context;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long[] userIds;
+
+    private final String[] logins;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> container, ConfigurableApplicationContext context) {
+        this.container = container;
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seed();
+        List<ApplicationUser> users = jdbcTemplate.query(
+                "SELECT id, login FROM application_user WHERE login LIKE ? || '%' ORDER BY id",
+                (rs, rowNum) -> new ApplicationUser(rs.getLong("id"), rs.getString("login"), "password", null),
+                LOGIN_PREFIX);
+        this.userIds = users.stream().mapToLong(ApplicationUser::getId).toArray();
+        this.logins = users.stream().map(ApplicationUser::getLogin).toArray(String[]::new);
+    }
+
+    static BenchmarkDatabase start() {
+        String url = setting("benchmark.jdbc-url", "BENCHMARK_JDBC_URL", null);
+        String username = setting("benchmark.jdbc-username", "BENCHMARK_JDBC_USERNAME", "postgres");
+        String password = setting("benchmark.jdbc-password", "BENCHMARK_JDBC_PASSWORD", "postgres");
+        PostgreSQLContainer<?> container = null;
+        if (url == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+            url = container.getJdbcUrl();
+            username = container.getUsername();
+            password = container.getPassword();
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Repositories.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=" + username,
+                        "--spring.datasource.password=" + password,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false");
+        return new BenchmarkDatabase(container, context);
+    }
+
+    private static String setting(String property, String variable, String defaultValue) {
+        String value = System.getProperty(property, System.getenv(variable));
+        return value != null ? value : defaultValue;
+    }
+
+    private void seed() {
+        Integer seeded = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM application_user WHERE login LIKE ? || '%'", Integer.class, LOGIN_PREFIX);
+        if (seeded != null && seeded >= USERS) {
+            return;
+        }
+        jdbcTemplate.update(SEED_USERS_SQL, LOGIN_PREFIX, USERS);
+        jdbcTemplate.update(SEED_PAYMENTS_SQL, PAYMENTS_PER_USER, LOGIN_PREFIX);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    ApplicationUserRepository userRepository() {
+        return context.getBean(ApplicationUserRepository.class);
+    }
+
+    PaymentRepository paymentRepository() {
+        return context.getBean(PaymentRepository.class);
+    }
+
+    int userCount() {
+        return userIds.length;
+    }
+
+    ApplicationUser user(int index) {
+        return new ApplicationUser(userIds[index], logins[index], "password", null);
+    }
+
+    ApplicationUser randomUser() {
+        return user(ThreadLocalRandom.current().nextInt(userIds.length));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class
+    })
+    @EntityScan("com.example.entities")
+    @EnableJpaRepositories("com.example.data")
+    static class Repositories {
+    }
+
+}
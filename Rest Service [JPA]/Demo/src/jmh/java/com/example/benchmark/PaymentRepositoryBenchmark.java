@@ -0,0 +1,75 @@
+package com.example.benchmark;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.entities.Payment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency percentiles of history pages and payment writes through Spring Data JPA.
+ * {@code save} persists the entity, {@code debitAndSave} runs the native statement a payment
+ * actually uses (debit, insert and rollup upsert).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PaymentRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private BenchmarkDatabase database;
+
+    private PaymentRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        repository = database.paymentRepository();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<PaymentData> findAllByUser() {
+        int page = ThreadLocalRandom.current().nextInt(BenchmarkDatabase.PAYMENTS_PER_USER / PAGE_SIZE);
+        return repository.findAllByUser(database.randomUser(), null, null,
+                PageRequest.of(page, PAGE_SIZE, Sort.by("id").ascending()));
+    }
+
+    @Benchmark
+    public void save() {
+        repository.save(new Payment(null, new Date(), "+79876543210", 100, database.randomUser()));
+    }
+
+    @Benchmark
+    public Optional<PaymentResult> debitAndSave() {
+        return repository.debitAndSave(database.randomUser().getId(), new Date(), "+79876543210", 100);
+    }
+
+}
@@ -1,17 +1,28 @@
 package com.example.api;
 
+import com.example.api.dto.PagedHistory;
 import com.example.api.dto.PaymentData;
+import com.example.api.dto.SpendingSummary;
 import com.example.api.dto.UserData;
+import com.example.api.dto.UserLoginData;
 import com.example.api.dto.UserRegisterData;
 import com.example.entities.ApplicationUser;
 import com.example.api.dto.Balance;
-import com.example.entities.Payment;
 
 import com.example.services.AccountService;
+import com.example.services.HistoryExportFormat;
+import com.example.services.HistoryPage;
+import com.example.services.PasswordHashingRejectedException;
+import com.example.services.PaymentHistoryExporter;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
+import org.springframework.format.annotation.DateTimeFormat;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
@@ -24,22 +35,34 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
-import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 public class AccountController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    static final String TOTAL_PAGES_HEADER = "X-Total-Pages";
+
+    static final int MAX_BULK_PAYMENTS = 10_000;
+
     private final AccountService accountService;
 
-    public AccountController(AccountService applicationUserService) {
+    private final PaymentHistoryExporter historyExporter;
+
+    public AccountController(AccountService applicationUserService, PaymentHistoryExporter historyExporter) {
         this.accountService = applicationUserService;
+        this.historyExporter = historyExporter;
     }
 
     @PostMapping("/api/registration")
-    @Transactional
     public ResponseEntity<?> handleRegistrationNewUser(@RequestBody UserRegisterData registerData) {
         if (registerData.login() == null || registerData.password() == null ||
                 registerData.login().trim().equals("") || registerData.password().trim().equals("")) {
@@ -49,7 +72,14 @@ public class AccountController {
             return ResponseEntity.badRequest().body("Login must be phone number");
         }
 
-        var optionalUser = accountService.registrationNewUser(registerData);
+        Optional<ApplicationUser> optionalUser;
+        try {
+            optionalUser = accountService.registrationNewUser(registerData);
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Registration is temporarily unavailable");
+        }
         if (optionalUser.isEmpty()) {
             return ResponseEntity.badRequest().body("User with this login already exists");
         } else {
@@ -59,14 +89,30 @@ public class AccountController {
         }
     }
 
+    @PostMapping("/api/login")
+    public ResponseEntity<?> handleLogin(@RequestBody UserLoginData loginData) {
+        if (loginData.login() == null || loginData.password() == null ||
+                loginData.login().trim().equals("") || loginData.password().trim().equals("")) {
+            return ResponseEntity.badRequest().body("Login and password required");
+        }
+
+        var optionalToken = accountService.login(loginData);
+        if (optionalToken.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid login or password");
+        } else {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(optionalToken.get());
+        }
+    }
+
     @GetMapping("/api/balance")
     public ResponseEntity<Balance> balance(@AuthenticationPrincipal ApplicationUser user) {
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(new Balance(user));
+                .body(new Balance(accountService.currentUser(user)));
     }
 
-    @Transactional
     @PostMapping("/api/payment")
     public ResponseEntity<String> handleMakingPayment(
             @AuthenticationPrincipal ApplicationUser user,
@@ -81,22 +127,96 @@ public class AccountController {
         }
     }
 
+    @PostMapping("/api/payment/bulk")
+    public ResponseEntity<String> handleMakingPayments(
+            @AuthenticationPrincipal ApplicationUser user,
+            @RequestBody List<PaymentData> payments) {
+        if (payments.isEmpty() || payments.size() > MAX_BULK_PAYMENTS) {
+            return ResponseEntity.badRequest().body("Number of payments must be between 1 and " + MAX_BULK_PAYMENTS);
+        }
+        for (PaymentData paymentData : payments) {
+            if (!paymentData.phone().matches("[0-9+]+")) {
+                return ResponseEntity.badRequest().body("Phone number must contain only numbers");
+            }
+            if (paymentData.amount() <= 0) {
+                return ResponseEntity.badRequest().body("Amount must be positive");
+            }
+        }
+        return ResponseEntity.ok(accountService.makingPayments(user, payments));
+    }
+
     @GetMapping("/api/history")
-    public ResponseEntity<List<PaymentData>> handleHistory(
+    public ResponseEntity<?> handleHistory(
             @RequestParam(value = "page", required = false , defaultValue = "0") int page,
             @RequestParam(value = "size", required = false, defaultValue = "10" ) int size,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(value = "envelope", required = false, defaultValue = "false") boolean envelope,
             @AuthenticationPrincipal ApplicationUser user) {
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("id").ascending());
-        List<Payment> payments = accountService.history(user, pageRequest);
+        if (from != null && to != null && !from.before(to)) {
+            return ResponseEntity.badRequest().body("From must be before to");
+        }
 
-        List<PaymentData> paymentDataList = new ArrayList<>();
-        for (Payment payment : payments) {
-            paymentDataList.add(new PaymentData(payment));
+        HistoryPage historyPage;
+        if (cursor != null) {
+            Optional<Long> afterId = PaymentCursor.decode(cursor);
+            if (afterId.isEmpty()) {
+                return ResponseEntity.badRequest().body("Invalid cursor");
+            }
+            historyPage = accountService.historyPage(user, afterId.get(), from, to, size);
+        } else {
+            PageRequest pageRequest = PageRequest.of(page, size, Sort.by("id").ascending());
+            historyPage = accountService.historyPage(user, from, to, pageRequest);
+        }
+
+        var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON);
+        String nextCursor = null;
+        if (historyPage.lastPaymentId() != null && historyPage.payments().size() == size) {
+            nextCursor = PaymentCursor.encode(historyPage.lastPaymentId());
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        Long totalPages = null;
+        if (historyPage.totalCount() != null) {
+            response.header(TOTAL_COUNT_HEADER, historyPage.totalCount().toString());
+            if (size > 0) {
+                totalPages = (historyPage.totalCount() + size - 1) / size;
+                response.header(TOTAL_PAGES_HEADER, totalPages.toString());
+            }
         }
+        if (envelope) {
+            return response.body(new PagedHistory(historyPage.payments(), cursor == null ? page : null, size,
+                    historyPage.totalCount(), totalPages, nextCursor));
+        }
+        return response.body(historyPage.payments());
+    }
+
+    @GetMapping("/api/history/export")
+    public ResponseEntity<?> handleHistoryExport(
+            @RequestParam(value = "format", required = false, defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal ApplicationUser user) {
+        Optional<HistoryExportFormat> exportFormat = HistoryExportFormat.fromParameter(format);
+        if (exportFormat.isEmpty()) {
+            return ResponseEntity.badRequest().body("Format must be ndjson or csv");
+        }
+
+        HistoryExportFormat selected = exportFormat.get();
+        StreamingResponseBody body = out -> historyExporter.export(user, selected, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(selected.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("history." + selected.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
 
+    @GetMapping("/api/summary")
+    public ResponseEntity<SpendingSummary> summary(@AuthenticationPrincipal ApplicationUser user) {
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(paymentDataList);
+                .body(accountService.summary(user));
     }
 
     @Transactional
@@ -0,0 +1,11 @@
+package com.example.api.dto;
+
+import com.example.data.PaymentSummaryRow;
+
+public record SummaryBucket(String bucket, double total, long count) {
+
+    public SummaryBucket(PaymentSummaryRow row) {
+        this(row.bucket(), (double)row.totalAmount() / 100, row.paymentCount());
+    }
+
+}
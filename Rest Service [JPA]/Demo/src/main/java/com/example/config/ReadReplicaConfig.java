@@ -0,0 +1,71 @@
+package com.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with the primary pool plus one pool per URL in
+ * {@code account.read-replicas.urls}. Replicas share the credentials and
+ * {@code spring.datasource.hikari} settings of the primary. Without replicas every connection
+ * comes from the primary, still taken lazily. On virtual threads each pool is fronted by a
+ * {@link ConnectionLimitingDataSource} of the pool's size.
+ */
+@Configuration
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReadReplicaDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${account.read-replicas.urls:}") List<String> replicaUrls) {
+        Binder binder = Binder.get(environment);
+        boolean virtualThreads = Threading.VIRTUAL.isActive(environment);
+        HikariDataSource primary = pool(properties, binder, properties.determineUrl());
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = pool(properties, binder, url);
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(limit(replica, replica.getPoolName(), virtualThreads, meterRegistry));
+        }
+        return new ReadReplicaDataSource(limit(primary, "primary", virtualThreads, meterRegistry), replicas);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, String url) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        return pool;
+    }
+
+    private static DataSource limit(HikariDataSource pool, String name, boolean virtualThreads,
+                                    MeterRegistry meterRegistry) {
+        if (!virtualThreads) {
+            return pool;
+        }
+        var limited = new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(),
+                Duration.ofMillis(pool.getConnectionTimeout()));
+        Gauge.builder("datasource.permits.waiting", limited, ConnectionLimitingDataSource::waiting)
+                .tag("pool", name)
+                .register(meterRegistry);
+        return limited;
+    }
+
+}
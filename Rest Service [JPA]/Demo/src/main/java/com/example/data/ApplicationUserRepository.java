@@ -3,16 +3,37 @@ package com.example.data;
 import com.example.entities.ApplicationUser;
 
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ApplicationUserRepository extends CrudRepository<ApplicationUser, Long> {
 
     Optional<ApplicationUser> findByLogin(String login);
 
+    @Query("select u.login from ApplicationUser u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> findAllLogins();
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     ApplicationUser save(ApplicationUser applicationUser);
 
+    @Transactional
+    @Modifying
+    @Query("""
+            update ApplicationUser u
+            set u.balance = u.balance - :amount, u.paymentCount = u.paymentCount + :count
+            where u.id = :id and u.balance >= :amount
+            """)
+    int debit(@Param("id") Long id, @Param("amount") long amount, @Param("count") int count);
+
 }
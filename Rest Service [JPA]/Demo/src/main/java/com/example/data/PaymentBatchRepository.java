@@ -0,0 +1,16 @@
+package com.example.data;
+
+import com.example.entities.Payment;
+
+import java.util.List;
+
+public interface PaymentBatchRepository {
+
+    /**
+     * Runs {@link PaymentRepository#debitAndSave} for every payment as one JDBC batch. Element
+     * {@code i} of the result tells whether payment {@code i} was made; failures of the batch as a
+     * whole are thrown.
+     */
+    List<Boolean> debitAndSaveAll(List<Payment> payments);
+
+}
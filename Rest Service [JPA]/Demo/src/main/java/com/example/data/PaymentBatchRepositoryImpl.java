@@ -0,0 +1,35 @@
+package com.example.data;
+
+import com.example.entities.Payment;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+class PaymentBatchRepositoryImpl implements PaymentBatchRepository {
+
+    private static final String DEBIT_AND_ADD_PAYMENTS_SQL =
+            PaymentRepository.DEBIT_AND_ADD_PAYMENT_CTE + PaymentRepository.SUMMARIZE_PAYMENT_SQL;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    PaymentBatchRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Boolean> debitAndSaveAll(List<Payment> payments) {
+        SqlParameterSource[] parameters = payments.stream()
+                .map(payment -> new MapSqlParameterSource()
+                        .addValue("amount", payment.getAmount())
+                        .addValue("userId", payment.getUser().getId())
+                        .addValue("date", payment.getDate())
+                        .addValue("phone", payment.getPhone()))
+                .toArray(SqlParameterSource[]::new);
+        int[] counts = jdbcTemplate.batchUpdate(DEBIT_AND_ADD_PAYMENTS_SQL, parameters);
+        return Arrays.stream(counts).mapToObj(count -> count > 0).toList();
+    }
+
+}
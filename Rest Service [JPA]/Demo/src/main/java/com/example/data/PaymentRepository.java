@@ -1,17 +1,123 @@
 package com.example.data;
 
+import com.example.api.dto.PaymentData;
 import com.example.entities.ApplicationUser;
 import com.example.entities.Payment;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface PaymentRepository extends PagingAndSortingRepository<Payment, Long> {
+public interface PaymentRepository extends PagingAndSortingRepository<Payment, Long>, PaymentBatchRepository {
 
-    List<Payment> findAllByUser(ApplicationUser user, PageRequest pageRequest);
+    String DEBIT_AND_ADD_PAYMENT_CTE = """
+            WITH debited AS (
+                UPDATE application_user
+                SET balance = balance - :amount,
+                    payment_count = payment_count + 1
+                WHERE id = :userId AND balance >= :amount
+                RETURNING id, balance
+            ), inserted AS (
+                INSERT INTO payment
+                    (date, phone, amount, user_id)
+                SELECT CAST(:date AS TIMESTAMP), CAST(:phone AS VARCHAR), CAST(:amount AS BIGINT), id FROM debited
+                RETURNING id, user_id, date, phone, amount
+            )
+            """;
+
+    String SUMMARIZE_PAYMENT_SQL = """
+            INSERT INTO payment_summary
+                (user_id, kind, bucket, total_amount, payment_count)
+            SELECT inserted.user_id, bucket.kind, bucket.name, inserted.amount, 1
+            FROM inserted CROSS JOIN LATERAL (VALUES
+                ('DAY', to_char(inserted.date, 'YYYY-MM-DD')),
+                ('MONTH', to_char(inserted.date, 'YYYY-MM')),
+                ('PHONE', inserted.phone)
+            ) AS bucket (kind, name)
+            ON CONFLICT (user_id, kind, bucket) DO UPDATE
+            SET total_amount = payment_summary.total_amount + EXCLUDED.total_amount,
+                payment_count = payment_summary.payment_count + 1
+            """;
+
+    @Query("""
+            select new com.example.api.dto.PaymentData(p.id, p.date, p.phone, p.amount / 100.0)
+            from Payment p
+            where p.user = :user
+              and (:from is null or p.date >= :from)
+              and (:to is null or p.date < :to)
+            """)
+    List<PaymentData> findAllByUser(@Param("user") ApplicationUser user, @Param("from") Date from,
+                                    @Param("to") Date to, PageRequest pageRequest);
+
+    @Query("""
+            select new com.example.api.dto.PaymentData(p.id, p.date, p.phone, p.amount / 100.0)
+            from Payment p
+            where p.user = :user and p.id > :afterId
+              and (:from is null or p.date >= :from)
+              and (:to is null or p.date < :to)
+            order by p.id
+            """)
+    List<PaymentData> findAllByUserAfter(@Param("user") ApplicationUser user, @Param("afterId") Long afterId,
+                                         @Param("from") Date from, @Param("to") Date to, PageRequest pageRequest);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Payment p where p.user = :user order by p.id")
+    Stream<Payment> streamAllByUser(@Param("user") ApplicationUser user);
+
+    @Query("""
+            select new com.example.data.PaymentSummaryRow(s.kind, s.bucket, s.totalAmount, s.paymentCount)
+            from PaymentSummary s
+            where s.userId = :#{#user.id}
+            order by s.kind, s.bucket
+            """)
+    List<PaymentSummaryRow> findSummaryByUser(@Param("user") ApplicationUser user);
+
+    @Query("select u.paymentCount from ApplicationUser u where u.id = :#{#user.id}")
+    long countByUser(@Param("user") ApplicationUser user);
 
     void save(Payment payment);
 
+    <S extends Payment> List<S> saveAll(Iterable<S> payments);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            INSERT INTO payment_summary
+                (user_id, kind, bucket, total_amount, payment_count)
+            SELECT payment.user_id, bucket.kind, bucket.name, SUM(payment.amount), COUNT(*)
+            FROM payment CROSS JOIN LATERAL (VALUES
+                ('DAY', to_char(payment.date, 'YYYY-MM-DD')),
+                ('MONTH', to_char(payment.date, 'YYYY-MM')),
+                ('PHONE', payment.phone)
+            ) AS bucket (kind, name)
+            WHERE payment.id IN (:ids)
+            GROUP BY payment.user_id, bucket.kind, bucket.name
+            ON CONFLICT (user_id, kind, bucket) DO UPDATE
+            SET total_amount = payment_summary.total_amount + EXCLUDED.total_amount,
+                payment_count = payment_summary.payment_count + EXCLUDED.payment_count
+            """)
+    int summarize(@Param("ids") List<Long> ids);
+
+    @Transactional
+    @Query(nativeQuery = true, value = DEBIT_AND_ADD_PAYMENT_CTE + ", summarized AS (\n" + SUMMARIZE_PAYMENT_SQL + ")\n" + """
+            SELECT inserted.id AS "paymentId", debited.balance AS "balance"
+            FROM inserted, debited
+            """)
+    Optional<PaymentResult> debitAndSave(@Param("userId") Long userId, @Param("date") Date date,
+                                         @Param("phone") String phone, @Param("amount") long amount);
+
 }
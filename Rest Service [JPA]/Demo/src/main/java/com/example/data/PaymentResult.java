@@ -0,0 +1,9 @@
+package com.example.data;
+
+public interface PaymentResult {
+
+    Long getPaymentId();
+
+    Long getBalance();
+
+}
@@ -6,10 +6,17 @@ import jakarta.persistence.*;
 import java.util.Date;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "payment_user_id_id_idx", columnList = "user_id, id"),
+        @Index(name = "payment_user_id_date_idx", columnList = "user_id, date")
+})
 public class Payment {
 
+        // See ApplicationUser.id; one block covers a full insert batch of hibernate.jdbc.batch_size.
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_seq")
+        @SequenceGenerator(name = "payment_seq", allocationSize = 1000)
+        @Column(columnDefinition = "bigint default nextval('payment_seq')")
         private Long id;
 
         @Column(nullable = false)
@@ -21,7 +28,8 @@ public class Payment {
         @Column(nullable = false)
         private long amount;
 
-        @ManyToOne(fetch = FetchType.LAZY)
+        @ManyToOne(fetch = FetchType.LAZY, optional = false)
+        @JoinColumn(name = "user_id", nullable = false)
         @JsonIgnore
         private ApplicationUser user;
 
@@ -63,6 +71,10 @@ public class Payment {
                 this.amount = amount;
         }
 
+        public ApplicationUser getUser() {
+                return user;
+        }
+
         public void setUser(ApplicationUser applicationUser) {
                 this.user = applicationUser;
         }
@@ -0,0 +1,89 @@
+package com.example.entities;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Running totals of a user's payments per day, month and recipient phone. Rows are upserted by the
+ * payment statement itself and only read through {@code PaymentRepository.findSummaryByUser}.
+ */
+@Entity
+@Table(name = "payment_summary")
+@IdClass(PaymentSummary.Key.class)
+public class PaymentSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(length = 5)
+    private String kind;
+
+    @Id
+    @Column(length = 64)
+    private String bucket;
+
+    @Column(nullable = false)
+    private long totalAmount;
+
+    @Column(nullable = false)
+    private long paymentCount;
+
+    public PaymentSummary() {}
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long userId;
+
+        private String kind;
+
+        private String bucket;
+
+        public Key() {}
+
+        public Key(Long userId, String kind, String bucket) {
+            this.userId = userId;
+            this.kind = kind;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(kind, key.kind) &&
+                    Objects.equals(bucket, key.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, kind, bucket);
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.example.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class CachingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final VerifiedCredentialCache credentialCache;
+
+    public CachingAuthenticationProvider(UserDetailsService userDetailsService,
+                                         PasswordEncoder passwordEncoder,
+                                         VerifiedCredentialCache credentialCache) {
+        super(passwordEncoder);
+        setUserDetailsService(userDetailsService);
+        this.credentialCache = credentialCache;
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                  UsernamePasswordAuthenticationToken authentication)
+            throws AuthenticationException {
+        Object credentials = authentication.getCredentials();
+        if (credentials != null && credentialCache.isVerified(
+                userDetails.getUsername(), userDetails.getPassword(), credentials.toString())) {
+            return;
+        }
+
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        credentialCache.put(userDetails.getUsername(), userDetails.getPassword(), credentials.toString());
+    }
+
+}
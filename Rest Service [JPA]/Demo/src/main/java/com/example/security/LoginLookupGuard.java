@@ -0,0 +1,110 @@
+package com.example.security;
+
+import com.example.data.ApplicationUserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+/**
+ * Rejects logins that are known not to exist without a database round trip. Logins that missed in
+ * the database are remembered for a short time; optionally a Bloom filter seeded from
+ * {@code application_user.login} answers for logins that were never looked up. The Bloom filter
+ * only learns about users registered through this instance, so it is meant for single-instance
+ * deployments.
+ */
+@Component
+public class LoginLookupGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginLookupGuard.class);
+
+    private final Cache<String, Boolean> unknownLogins;
+
+    private final LoginBloomFilter knownLogins;
+
+    private volatile boolean knownLoginsLoaded;
+
+    private final ApplicationUserRepository repository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter rejectedByCache;
+
+    private final Counter rejectedByFilter;
+
+    public LoginLookupGuard(ApplicationUserRepository repository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${security.unknown-login-cache.max-size:100000}") long maxSize,
+                            @Value("${security.unknown-login-cache.ttl:30s}") Duration ttl,
+                            @Value("${security.login-bloom-filter.enabled:false}") boolean bloomFilterEnabled,
+                            @Value("${security.login-bloom-filter.expected-logins:1000000}") long expectedLogins) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.unknownLogins = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.knownLogins = bloomFilterEnabled ? new LoginBloomFilter(expectedLogins, 0.01) : null;
+        this.rejectedByCache = Counter.builder("security.login.rejected")
+                .tag("reason", "unknown-login-cache")
+                .register(meterRegistry);
+        this.rejectedByFilter = Counter.builder("security.login.rejected")
+                .tag("reason", "bloom-filter")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownLogins, "unknown-logins");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadKnownLogins() {
+        if (knownLogins == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> logins = repository.findAllLogins()) {
+                logins.forEach(knownLogins::put);
+            }
+        });
+        knownLoginsLoaded = true;
+        log.info("Loaded login Bloom filter in {} ms", Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    public boolean mightExist(String login) {
+        if (unknownLogins.getIfPresent(login) != null) {
+            rejectedByCache.increment();
+            return false;
+        }
+        if (knownLogins != null && knownLoginsLoaded && !knownLogins.mightContain(login)) {
+            rejectedByFilter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void unknown(String login) {
+        unknownLogins.put(login, Boolean.TRUE);
+    }
+
+    public void registered(String login) {
+        if (knownLogins != null) {
+            knownLogins.put(login);
+        }
+        unknownLogins.invalidate(login);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.security;
+
+import com.example.entities.ApplicationUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Identity part of authenticated users by login. The balance is never cached: callers that need it
+ * read it fresh through {@code AccountService.currentUser}.
+ */
+@Component
+public class PrincipalCache {
+
+    private final Cache<String, ApplicationUser> cache;
+
+    public PrincipalCache(MeterRegistry meterRegistry,
+                          @Value("${security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${security.principal-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    public Optional<ApplicationUser> get(String login, Function<String, Optional<ApplicationUser>> loader) {
+        ApplicationUser identity = cache.get(login, key -> loader.apply(key)
+                .map(PrincipalCache::identityOf)
+                .orElse(null));
+        return Optional.ofNullable(identity).map(PrincipalCache::identityOf);
+    }
+
+    public void invalidate(String login) {
+        cache.invalidate(login);
+    }
+
+    private static ApplicationUser identityOf(ApplicationUser user) {
+        var identity = new ApplicationUser(user.getId(), user.getLogin(), user.getPassword(), null);
+        identity.setFirstName(user.getFirstName());
+        identity.setLastName(user.getLastName());
+        identity.setPatronymic(user.getPatronymic());
+        identity.setEmail(user.getEmail());
+        identity.setGender(user.getGender());
+        identity.setBirthday(user.getBirthday());
+        return identity;
+    }
+
+}
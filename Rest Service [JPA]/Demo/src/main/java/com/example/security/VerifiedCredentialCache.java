@@ -0,0 +1,70 @@
+package com.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Logins whose password recently passed a BCrypt check. Entries keep an HMAC of the raw password
+ * and the stored hash it was checked against, so a changed password never matches a stale entry.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, VerifiedCredential> cache;
+
+    private final SecretKeySpec digestKey;
+
+    public VerifiedCredentialCache(
+            @Value("${security.credential-cache.max-size:10000}") long maxSize,
+            @Value("${security.credential-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.digestKey = new SecretKeySpec(key, DIGEST_ALGORITHM);
+    }
+
+    public boolean isVerified(String login, String passwordHash, String rawPassword) {
+        VerifiedCredential credential = cache.getIfPresent(login);
+        return credential != null
+                && credential.passwordHash().equals(passwordHash)
+                && MessageDigest.isEqual(credential.digest(), digest(rawPassword));
+    }
+
+    public void put(String login, String passwordHash, String rawPassword) {
+        cache.put(login, new VerifiedCredential(passwordHash, digest(rawPassword)));
+    }
+
+    public void invalidate(String login) {
+        cache.invalidate(login);
+    }
+
+    private byte[] digest(String rawPassword) {
+        try {
+            Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+            mac.init(digestKey);
+            return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Couldn't compute credential digest", e);
+        }
+    }
+
+    private record VerifiedCredential(String passwordHash, byte[] digest) {
+    }
+
+}
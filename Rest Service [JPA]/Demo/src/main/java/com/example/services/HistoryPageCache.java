@@ -0,0 +1,137 @@
+package com.example.services;
+
+import com.example.api.dto.PaymentData;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Recently served {@code /api/history} pages, already converted to {@link PaymentData}. Entries are
+ * grouped by user so a payment drops all pages of its payer at once, and the cache is bounded by an
+ * estimate of the retained heap rather than by entry count.
+ * <p>
+ * A page loaded concurrently with a payment of the same user is returned but not stored, so an
+ * invalidation can never be undone by a slow reader. The TTL bounds staleness caused by payments
+ * made through other instances; it runs per page from the moment the page was loaded, so caching
+ * further pages of a user does not extend the life of the pages already cached.
+ */
+@Component
+public class HistoryPageCache {
+
+    // Rough retained sizes on a 64-bit JVM with compressed oops.
+    private static final int PAGE_OVERHEAD_BYTES = 96;
+
+    private static final int PAYMENT_OVERHEAD_BYTES = 112;
+
+    private static final int STRIPES = 1024;
+
+    private final Cache<Long, Map<PageKey, CachedPage>> cache;
+
+    private final long ttlNanos;
+
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public HistoryPageCache(MeterRegistry meterRegistry,
+                            @Value("${account.history-cache.max-weight:32MB}") DataSize maxWeight,
+                            @Value("${account.history-cache.ttl:30s}") Duration ttl) {
+        Counter evictions = Counter.builder("history.cache.evictions")
+                .register(meterRegistry);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((Long userId, Map<PageKey, CachedPage> pages) -> weigh(pages))
+                .expireAfterWrite(ttl)
+                .evictionListener((userId, pages, cause) -> evictions.increment())
+                .build();
+        this.ttlNanos = ttl.toNanos();
+        this.hits = Counter.builder("history.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("history.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("history.cache.weight", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("history.cache.users", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    public HistoryPage get(long userId, int page, int size, Supplier<HistoryPage> loader) {
+        var key = new PageKey(page, size);
+        long now = System.nanoTime();
+        Map<PageKey, CachedPage> pages = cache.getIfPresent(userId);
+        CachedPage cached = pages == null ? null : pages.get(key);
+        if (cached != null && isFresh(cached, now)) {
+            hits.increment();
+            return cached.page();
+        }
+        misses.increment();
+
+        int stripe = stripe(userId);
+        long stamp = invalidations.get(stripe);
+        HistoryPage loaded = loader.get();
+        cache.asMap().compute(userId, (id, current) -> {
+            if (invalidations.get(stripe) != stamp) {
+                return current;
+            }
+            Map<PageKey, CachedPage> updated = new HashMap<>();
+            if (current != null) {
+                current.forEach((k, p) -> {
+                    if (isFresh(p, now)) {
+                        updated.put(k, p);
+                    }
+                });
+            }
+            updated.put(key, new CachedPage(loaded, now));
+            return Map.copyOf(updated);
+        });
+        return loaded;
+    }
+
+    public void invalidate(long userId) {
+        invalidations.incrementAndGet(stripe(userId));
+        cache.invalidate(userId);
+    }
+
+    private boolean isFresh(CachedPage page, long now) {
+        return now - page.loadedAt() < ttlNanos;
+    }
+
+    private static int stripe(long userId) {
+        return (int) (userId & (STRIPES - 1));
+    }
+
+    private static int weigh(Map<PageKey, CachedPage> pages) {
+        int weight = 0;
+        for (CachedPage page : pages.values()) {
+            weight += PAGE_OVERHEAD_BYTES;
+            for (PaymentData payment : page.page().payments()) {
+                weight += PAYMENT_OVERHEAD_BYTES + 2 * payment.phone().length();
+            }
+        }
+        return weight;
+    }
+
+    record PageKey(int page, int size) {
+    }
+
+    record CachedPage(HistoryPage page, long loadedAt) {
+    }
+
+}
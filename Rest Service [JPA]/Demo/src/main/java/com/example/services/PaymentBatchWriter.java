@@ -0,0 +1,169 @@
+package com.example.services;
+
+import com.example.data.PaymentRepository;
+import com.example.entities.Payment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for payments. Concurrent payments are collected for up to {@code max-wait} or
+ * {@code max-size} items and executed as one JDBC batch in a single transaction, so many payments
+ * share one commit. The batch goes through {@link PaymentRepository#debitAndSaveAll}, which reuses
+ * the statement of {@link PaymentRepository#debitAndSave}. Each item reports its own outcome: {@code true} when the balance was debited,
+ * {@code false} when funds were insufficient. If the batch fails as a whole, its items are replayed
+ * one by one so only the failing payment completes exceptionally.
+ * <p>
+ * A single writer thread drains the queue, which also keeps concurrent batches from taking row
+ * locks on the same users in different orders.
+ */
+@Component
+public class PaymentBatchWriter implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentBatchWriter.class);
+
+    private final PaymentRepository paymentRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<PendingPayment> queue;
+
+    private final ExecutorService writer;
+
+    private volatile boolean running;
+
+    private final DistributionSummary batchSize;
+
+    private final Counter fallbacks;
+
+    public PaymentBatchWriter(PaymentRepository paymentRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${account.payment-batch.enabled:false}") boolean enabled,
+                              @Value("${account.payment-batch.max-size:64}") int maxBatchSize,
+                              @Value("${account.payment-batch.max-wait:5ms}") Duration maxWait,
+                              @Value("${account.payment-batch.queue-capacity:4096}") int queueCapacity) {
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.running = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = DistributionSummary.builder("payment.batch.size")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("payment.batch.fallbacks")
+                .register(meterRegistry);
+        if (enabled) {
+            this.writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("payment-batch-"));
+            this.writer.execute(this::drain);
+        } else {
+            this.writer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Boolean> submit(Payment payment) {
+        var pending = new PendingPayment(payment, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            executeSingle(pending);
+        }
+        return pending.result();
+    }
+
+    private void drain() {
+        List<PendingPayment> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPayment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingPayment next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                executeBatch(batch);
+                batch.clear();
+            }
+        }
+        queue.drainTo(batch);
+        batch.forEach(this::executeSingle);
+    }
+
+    private void executeBatch(List<PendingPayment> batch) {
+        batchSize.record(batch.size());
+        List<Boolean> results;
+        try {
+            List<Payment> payments = batch.stream().map(PendingPayment::payment).toList();
+            results = transactionTemplate.execute(status -> paymentRepository.debitAndSaveAll(payments));
+        } catch (RuntimeException e) {
+            log.warn("Payment batch of {} failed, retrying payments individually", batch.size(), e);
+            fallbacks.increment();
+            batch.forEach(this::executeSingle);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(results.get(i));
+        }
+    }
+
+    private void executeSingle(PendingPayment pending) {
+        Payment payment = pending.payment();
+        try {
+            pending.result().complete(paymentRepository.debitAndSave(payment.getUser().getId(), payment.getDate(),
+                    payment.getPhone(), payment.getAmount()).isPresent());
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.shutdown();
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    record PendingPayment(Payment payment, CompletableFuture<Boolean> result) {
+    }
+
+}
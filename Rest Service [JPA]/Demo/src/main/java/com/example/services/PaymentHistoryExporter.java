@@ -0,0 +1,81 @@
+package com.example.services;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole payment history of a user straight to the response stream. Rows are read
+ * through a forward-only cursor and written one at a time, and each entity is detached once
+ * written, so neither the result set nor the persistence context grows with the size of the
+ * history. The read-only transaction keeps the cursor open (PostgreSQL only honours the fetch
+ * size outside of autocommit).
+ */
+@Component
+public class PaymentHistoryExporter {
+
+    private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] CSV_HEADER = "date,phone,amount\n".getBytes(StandardCharsets.UTF_8);
+
+    private final PaymentRepository paymentRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityManager entityManager;
+
+    private final ReadYourWrites readYourWrites;
+
+    public PaymentHistoryExporter(PaymentRepository paymentRepository, ObjectMapper objectMapper,
+                                  EntityManager entityManager, ReadYourWrites readYourWrites) {
+        this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Transactional(readOnly = true)
+    public void export(ApplicationUser user, HistoryExportFormat format, OutputStream out) throws IOException {
+        if (format == HistoryExportFormat.CSV) {
+            out.write(CSV_HEADER);
+        }
+        try (Stream<Payment> payments = readYourWrites.read(user.getLogin(),
+                () -> paymentRepository.streamAllByUser(user))) {
+            Iterator<Payment> iterator = payments.iterator();
+            while (iterator.hasNext()) {
+                Payment payment = iterator.next();
+                write(payment, format, out);
+                entityManager.detach(payment);
+            }
+        }
+        out.flush();
+    }
+
+    private void write(Payment payment, HistoryExportFormat format, OutputStream out) throws IOException {
+        if (format == HistoryExportFormat.CSV) {
+            out.write(csvRow(payment).getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write(objectMapper.writeValueAsBytes(new PaymentData(payment)));
+            out.write(NEW_LINE);
+        }
+    }
+
+    static String csvRow(Payment payment) {
+        return payment.getDate().toInstant() + "," +
+                payment.getPhone() + "," +
+                BigDecimal.valueOf(payment.getAmount(), 2).toPlainString() + "\n";
+    }
+
+}
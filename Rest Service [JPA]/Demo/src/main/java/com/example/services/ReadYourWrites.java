@@ -0,0 +1,90 @@
+package com.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the reads of a user on the primary for a short window after that user wrote, so a payment
+ * or profile change is visible to its author at once even while the read replicas lag behind.
+ * Reads of everybody else keep going to the replicas. Does nothing when no replica is configured.
+ * <p>
+ * The window is remembered by the instance that took the write. With several instances behind a
+ * load balancer, the requests of a user have to stick to one instance (route on the login or the
+ * bearer token) for their reads to follow their writes; lookups that must not miss a row written
+ * through another instance use {@link #find}, which asks the primary before giving up.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> recentWriters;
+
+    private final Counter pinnedReads;
+
+    public ReadYourWrites(MeterRegistry meterRegistry,
+                          @Value("${account.read-replicas.urls:}") List<String> replicaUrls,
+                          @Value("${account.read-replicas.read-your-writes.window:5s}") Duration window,
+                          @Value("${account.read-replicas.read-your-writes.max-size:100000}") long maxSize) {
+        this.recentWriters = replicaUrls.isEmpty() ? null : Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(window)
+                .build();
+        this.pinnedReads = Counter.builder("datasource.reads.pinned")
+                .register(meterRegistry);
+    }
+
+    public void wrote(String login) {
+        if (recentWriters != null) {
+            recentWriters.put(login, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Runs {@code read} on behalf of {@code login}. Connections of read-only transactions are taken
+     * lazily, so the routing decision made here applies to the transaction the caller is already in.
+     */
+    public <T> T read(String login, Supplier<T> read) {
+        if (recentWriters == null || PINNED.get() != null || recentWriters.getIfPresent(login) == null) {
+            return read.get();
+        }
+        return onPrimary(read);
+    }
+
+    /**
+     * Like {@link #read}, but looks on the primary as well when the replica finds nothing, since the
+     * row may have been written moments ago through another instance. For lookups whose misses are
+     * remembered, such as the logins {@code LoginLookupGuard} marks as unknown.
+     */
+    public <T> Optional<T> find(String login, Supplier<Optional<T>> find) {
+        Optional<T> found = read(login, find);
+        if (found.isPresent() || recentWriters == null || PINNED.get() != null) {
+            return found;
+        }
+        return onPrimary(find);
+    }
+
+    private <T> T onPrimary(Supplier<T> read) {
+        pinnedReads.increment();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    public static boolean pinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+}
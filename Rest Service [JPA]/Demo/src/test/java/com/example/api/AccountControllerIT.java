@@ -129,6 +129,44 @@ public class AccountControllerIT {
                 );
     }
 
+    @Test
+    public void handleLogin_ValidLoginAndPassword_ReturnsValidResponse() throws Exception {
+        var requestBuilder = MockMvcRequestBuilders.post("/api/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "login":"+7987654321",
+                            "password":"password1"
+                        }
+                        """);
+
+        mockMvc.perform(requestBuilder)
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON),
+                        jsonPath("$.accessToken").isNotEmpty(),
+                        jsonPath("$.tokenType").value("Bearer")
+                );
+    }
+
+    @Test
+    public void handleLogin_InvalidPassword_ReturnsValidResponse() throws Exception {
+        var requestBuilder = MockMvcRequestBuilders.post("/api/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "login":"+7987654321",
+                            "password":"wrong"
+                        }
+                        """);
+
+        mockMvc.perform(requestBuilder)
+                .andExpectAll(
+                        status().isUnauthorized(),
+                        content().string("Invalid login or password")
+                );
+    }
+
     @Test
     public void handleBalance_ReturnsValidResponse() throws Exception {
         var requestBuilder = MockMvcRequestBuilders.get("/api/balance")
@@ -1,13 +1,22 @@
 package com.example.api;
 
+import com.example.api.dto.AccessToken;
+import com.example.api.dto.PagedHistory;
 import com.example.api.dto.PaymentData;
+import com.example.api.dto.SpendingSummary;
+import com.example.api.dto.SummaryBucket;
 import com.example.api.dto.UserData;
+import com.example.api.dto.UserLoginData;
 import com.example.api.dto.UserRegisterData;
 import com.example.entities.ApplicationUser;
 import com.example.api.dto.Balance;
 import com.example.entities.Gender;
 import com.example.entities.Payment;
 import com.example.services.AccountService;
+import com.example.services.HistoryExportFormat;
+import com.example.services.HistoryPage;
+import com.example.services.PasswordHashingRejectedException;
+import com.example.services.PaymentHistoryExporter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -16,9 +25,13 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -31,6 +44,9 @@ public class AccountControllerTest {
     @Mock
     AccountService service;
 
+    @Mock
+    PaymentHistoryExporter historyExporter;
+
     @InjectMocks
     AccountController controller;
 
@@ -96,10 +112,66 @@ public class AccountControllerTest {
         assertEquals("User with this login already exists", responseEntity.getBody());
     }
 
+    @Test
+    public void registrationNewUser_HashingSaturated_ReturnsServiceUnavailable() {
+        var registerData = new UserRegisterData("+79876543210", "password");
+
+        Mockito.doThrow(new PasswordHashingRejectedException("Password hashing queue is full"))
+                .when(service).registrationNewUser(registerData);
+
+        var responseEntity = controller.handleRegistrationNewUser(registerData);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Registration is temporarily unavailable", responseEntity.getBody());
+    }
+
+    @Test
+    public void handleLogin_ValidLoginAndPassword_ReturnsValidResponseEntity() {
+        var loginData = new UserLoginData("+79876543210", "password");
+        var accessToken = new AccessToken("token", "Bearer", 900);
+
+        Mockito.doReturn(Optional.of(accessToken)).when(service).login(loginData);
+
+        var responseEntity = controller.handleLogin(loginData);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, responseEntity.getHeaders().getContentType());
+        assertEquals(accessToken, responseEntity.getBody());
+    }
+
+    @Test
+    public void handleLogin_InvalidPassword_ReturnsValidResponseEntity() {
+        var loginData = new UserLoginData("+79876543210", "password");
+
+        Mockito.doReturn(Optional.empty()).when(service).login(loginData);
+
+        var responseEntity = controller.handleLogin(loginData);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.UNAUTHORIZED, responseEntity.getStatusCode());
+        assertEquals("Invalid login or password", responseEntity.getBody());
+    }
+
+    @Test
+    public void handleLogin_PasswordIsNull_ReturnsValidResponseEntity() {
+        var loginData = new UserLoginData("+79876543210", null);
+
+        var responseEntity = controller.handleLogin(loginData);
+
+        assertNotNull(responseEntity);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Login and password required", responseEntity.getBody());
+    }
+
     @Test
     public void balance_ReturnsValidResponseEntity() {
         var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
 
+        Mockito.doReturn(applicationUser).when(service).currentUser(applicationUser);
+
         var responseEntity = controller.balance(applicationUser);
 
         assertNotNull(responseEntity);
@@ -149,27 +221,198 @@ public class AccountControllerTest {
         assertEquals("Phone number must contain only numbers", responseEntity.getBody());
     }
 
+    @Test
+    public void handleMakingPayments_ValidPayments_ReturnsValidResponseEntity() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var payments = List.of(new PaymentData(null, null, "+79876543210", 15.0));
+
+        Mockito.doReturn("1 payments are success").when(service).makingPayments(applicationUser, payments);
+
+        var responseEntity = controller.handleMakingPayments(applicationUser, payments);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("1 payments are success", responseEntity.getBody());
+    }
+
+    @Test
+    public void handleMakingPayments_TooManyPayments_ReturnsBadRequest() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var payments = Collections.nCopies(AccountController.MAX_BULK_PAYMENTS + 1,
+                new PaymentData(null, null, "+79876543210", 15.0));
+
+        var responseEntity = controller.handleMakingPayments(applicationUser, payments);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    public void handleMakingPayments_InvalidPhone_ReturnsBadRequest() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var payments = List.of(
+                new PaymentData(null, null, "+79876543210", 15.0),
+                new PaymentData(null, null, "+7987asd6543210", 15.0));
+
+        var responseEntity = controller.handleMakingPayments(applicationUser, payments);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Phone number must contain only numbers", responseEntity.getBody());
+        Mockito.verifyNoInteractions(service);
+    }
+
     @Test
     public void handleHistory_ReturnsValidResponseEntity() {
         var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
         var pageRequest = PageRequest.of(0, 5, Sort.by("id"));
+        var date = new Date();
         var payments = List.of(
-                new Payment(1L, new Date(), "+79876543210", 1500, applicationUser),
-                new Payment(2L, new Date(), "+79876543210", 1500, applicationUser)
+                new PaymentData(1L, date, "+79876543210", 15.0),
+                new PaymentData(2L, date, "+79876543210", 15.0)
         );
         var paymentDataList = List.of(
-                new PaymentData(new Payment(1L, new Date(), "+79876543210", 1500, applicationUser)),
-                new PaymentData(new Payment(2L, new Date(), "+79876543210", 1500, applicationUser))
+                new PaymentData(1L, date, "+79876543210", 15.0),
+                new PaymentData(2L, date, "+79876543210", 15.0)
         );
 
-        Mockito.doReturn(payments).when(service).history(applicationUser, pageRequest);
+        Mockito.doReturn(HistoryPage.of(payments)).when(service).historyPage(applicationUser, null, null, pageRequest);
 
-        var responseEntity = controller.handleHistory(0, 5, applicationUser);
+        var responseEntity = controller.handleHistory(0, 5, null, null, null, false, applicationUser);
 
         assertNotNull(responseEntity);
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(MediaType.APPLICATION_JSON, responseEntity.getHeaders().getContentType());
         assertEquals(paymentDataList, responseEntity.getBody());
+        assertNull(responseEntity.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void handleHistory_FullPage_ReturnsCursorForNextPage() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var date = new Date();
+        var firstPage = List.of(
+                new PaymentData(1L, date, "+79876543210", 15.0),
+                new PaymentData(2L, date, "+79876543210", 15.0)
+        );
+        var secondPage = List.of(
+                new PaymentData(3L, date, "+79876543210", 15.0)
+        );
+
+        Mockito.doReturn(HistoryPage.of(firstPage)).when(service)
+                .historyPage(applicationUser, null, null, PageRequest.of(0, 2, Sort.by("id")));
+        Mockito.doReturn(HistoryPage.of(secondPage)).when(service).historyPage(applicationUser, 2L, null, null, 2);
+
+        var firstResponse = controller.handleHistory(0, 2, null, null, null, false, applicationUser);
+        var cursor = firstResponse.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+
+        var secondResponse = controller.handleHistory(0, 2, cursor, null, null, false, applicationUser);
+
+        assertEquals(HttpStatus.OK, secondResponse.getStatusCode());
+        assertEquals(List.of(secondPage.get(0)), secondResponse.getBody());
+        assertNull(secondResponse.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void handleHistory_Envelope_ReturnsTotalsInHeadersAndBody() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var date = new Date();
+        var payments = List.of(
+                new PaymentData(3L, date, "+79876543210", 15.0),
+                new PaymentData(4L, date, "+79876543210", 15.0)
+        );
+
+        Mockito.doReturn(HistoryPage.of(payments, 7L)).when(service)
+                .historyPage(applicationUser, null, null, PageRequest.of(1, 2, Sort.by("id")));
+
+        var responseEntity = controller.handleHistory(1, 2, null, null, null, true, applicationUser);
+
+        var cursor = responseEntity.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER);
+        assertEquals("7", responseEntity.getHeaders().getFirst(AccountController.TOTAL_COUNT_HEADER));
+        assertEquals("4", responseEntity.getHeaders().getFirst(AccountController.TOTAL_PAGES_HEADER));
+        assertEquals(new PagedHistory(payments, 1, 2, 7L, 4L, cursor), responseEntity.getBody());
+    }
+
+    @Test
+    public void handleHistory_DateRange_OmitsTotals() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var from = new Date(1700000000000L);
+
+        Mockito.doReturn(HistoryPage.of(List.of())).when(service)
+                .historyPage(applicationUser, from, null, PageRequest.of(0, 2, Sort.by("id")));
+
+        var responseEntity = controller.handleHistory(0, 2, null, from, null, false, applicationUser);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNull(responseEntity.getHeaders().getFirst(AccountController.TOTAL_COUNT_HEADER));
+    }
+
+    @Test
+    public void handleHistory_InvalidCursor_ReturnsBadRequest() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+
+        var responseEntity = controller.handleHistory(0, 2, "not-a-cursor", null, null, false, applicationUser);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Invalid cursor", responseEntity.getBody());
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    public void handleHistory_FromNotBeforeTo_ReturnsBadRequest() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var date = new Date();
+
+        var responseEntity = controller.handleHistory(0, 2, null, date, date, false, applicationUser);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("From must be before to", responseEntity.getBody());
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    public void handleHistoryExport_Csv_StreamsHistoryAsAttachment() throws Exception {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var out = new ByteArrayOutputStream();
+
+        var responseEntity = controller.handleHistoryExport("csv", applicationUser);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(MediaType.parseMediaType("text/csv"), responseEntity.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"history.csv\"",
+                responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        Mockito.verifyNoInteractions(historyExporter);
+
+        ((StreamingResponseBody) responseEntity.getBody()).writeTo(out);
+
+        Mockito.verify(historyExporter).export(applicationUser, HistoryExportFormat.CSV, out);
+    }
+
+    @Test
+    public void handleHistoryExport_UnknownFormat_ReturnsBadRequest() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+
+        var responseEntity = controller.handleHistoryExport("xml", applicationUser);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Format must be ndjson or csv", responseEntity.getBody());
+        Mockito.verifyNoInteractions(historyExporter);
+    }
+
+    @Test
+    public void summary_ReturnsValidResponseEntity() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var summary = new SpendingSummary(
+                List.of(new SummaryBucket("2024-03-01", 15.0, 1)),
+                List.of(new SummaryBucket("2024-03", 15.0, 1)),
+                List.of(new SummaryBucket("+79876543210", 15.0, 1)));
+
+        Mockito.doReturn(summary).when(service).summary(applicationUser);
+
+        var responseEntity = controller.summary(applicationUser);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, responseEntity.getHeaders().getContentType());
+        assertEquals(summary, responseEntity.getBody());
     }
 
     @Test
@@ -0,0 +1,104 @@
+package com.example.config;
+
+import com.example.services.ReadYourWrites;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ReadReplicaDataSourceTest {
+
+    DataSource primary = mock(DataSource.class);
+
+    DataSource firstReplica = mock(DataSource.class);
+
+    DataSource secondReplica = mock(DataSource.class);
+
+    ReadReplicaDataSource dataSource = new ReadReplicaDataSource(primary, List.of(firstReplica, secondReplica));
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    ReadYourWrites readYourWrites = new ReadYourWrites(new SimpleMeterRegistry(), List.of("jdbc:postgresql://replica/db"),
+            Duration.ofMinutes(1), 100);
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        for (DataSource target : List.of(primary, firstReplica, secondReplica)) {
+            doReturn(mock(Connection.class)).when(target).getConnection();
+        }
+    }
+
+    @Test
+    public void readOnlyTransactions_UseReplicasInTurn() throws SQLException {
+        transactionTemplate.setReadOnly(true);
+
+        query();
+        query();
+        query();
+
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    public void readWriteTransaction_UsesPrimary() throws SQLException {
+        query();
+
+        verify(primary).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    public void readOnlyTransaction_AfterOwnWrite_UsesPrimary() throws SQLException {
+        transactionTemplate.setReadOnly(true);
+        readYourWrites.wrote("login");
+
+        transactionTemplate.executeWithoutResult(status -> readYourWrites.read("login", this::statement));
+        transactionTemplate.executeWithoutResult(status -> readYourWrites.read("other", this::statement));
+
+        verify(primary).getConnection();
+        verify(firstReplica).getConnection();
+        assertFalse(ReadYourWrites.pinnedToPrimary());
+    }
+
+    @Test
+    public void readOnlyTransaction_WithoutStatements_TakesNoConnection() throws SQLException {
+        transactionTemplate.setReadOnly(true);
+
+        transactionTemplate.executeWithoutResult(status -> DataSourceUtils.getConnection(dataSource));
+
+        verify(primary, never()).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    private void query() {
+        transactionTemplate.executeWithoutResult(status -> statement());
+    }
+
+    private Object statement() {
+        try {
+            return DataSourceUtils.getConnection(dataSource).prepareStatement("SELECT 1");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
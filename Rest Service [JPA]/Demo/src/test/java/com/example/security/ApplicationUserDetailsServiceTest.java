@@ -0,0 +1,115 @@
+package com.example.security;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.entities.ApplicationUser;
+import com.example.services.ReadYourWrites;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ApplicationUserDetailsServiceTest {
+
+    @Mock
+    ApplicationUserRepository repository;
+
+    SimpleMeterRegistry meterRegistry;
+
+    PrincipalCache principalCache;
+
+    @Mock
+    LoginLookupGuard loginLookupGuard;
+
+    ApplicationUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        principalCache = new PrincipalCache(meterRegistry, 100, Duration.ofMinutes(5));
+        service = new ApplicationUserDetailsService(repository, principalCache, loginLookupGuard,
+                new ReadYourWrites(meterRegistry, List.of(), Duration.ofSeconds(5), 100));
+    }
+
+    @Test
+    public void loadUserByUsername_RepeatedLookup_QueriesRepositoryOnce() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("login");
+        Mockito.doReturn(Optional.of(applicationUser)).when(repository).findByLogin("login");
+
+        var first = (ApplicationUser) service.loadUserByUsername("login");
+        var second = (ApplicationUser) service.loadUserByUsername("login");
+
+        assertEquals(1L, first.getId());
+        assertEquals("hash", second.getPassword());
+        assertNull(second.getBalance());
+        assertNotSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "principals").tag("result", "hit")
+                .functionCounter().count());
+
+        Mockito.verify(repository).findByLogin("login");
+        Mockito.verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void loadUserByUsername_AfterInvalidate_QueriesRepositoryAgain() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("login");
+        Mockito.doReturn(Optional.of(applicationUser)).when(repository).findByLogin("login");
+
+        service.loadUserByUsername("login");
+        principalCache.invalidate("login");
+        service.loadUserByUsername("login");
+
+        Mockito.verify(repository, Mockito.times(2)).findByLogin("login");
+    }
+
+    @Test
+    public void loadUserByUsername_UnknownLogin_ThrowsUsernameNotFound() {
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("unknown");
+        Mockito.doReturn(Optional.empty()).when(repository).findByLogin("unknown");
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("unknown"));
+
+        Mockito.verify(loginLookupGuard).unknown("unknown");
+    }
+
+    @Test
+    public void loadUserByUsername_ReplicaMissesNewUser_FindsUserOnPrimary() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+        var replicated = new ApplicationUserDetailsService(repository, principalCache, loginLookupGuard,
+                new ReadYourWrites(meterRegistry, List.of("jdbc:postgresql://replica/account"), Duration.ofSeconds(5), 100));
+
+        Mockito.doReturn(true).when(loginLookupGuard).mightExist("login");
+        Mockito.doAnswer(invocation -> ReadYourWrites.pinnedToPrimary() ? Optional.of(applicationUser) : Optional.empty())
+                .when(repository).findByLogin("login");
+
+        var found = (ApplicationUser) replicated.loadUserByUsername("login");
+
+        assertEquals(1L, found.getId());
+        Mockito.verify(repository, Mockito.times(2)).findByLogin("login");
+        Mockito.verify(loginLookupGuard, Mockito.never()).unknown("login");
+    }
+
+    @Test
+    public void loadUserByUsername_RejectedByGuard_SkipsRepository() {
+        Mockito.doReturn(false).when(loginLookupGuard).mightExist("unknown");
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("unknown"));
+
+        Mockito.verifyNoInteractions(repository);
+    }
+
+}
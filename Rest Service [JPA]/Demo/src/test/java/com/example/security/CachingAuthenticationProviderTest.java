@@ -0,0 +1,81 @@
+package com.example.security;
+
+import com.example.entities.ApplicationUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAuthenticationProviderTest {
+
+    @Mock
+    UserDetailsService userDetailsService;
+
+    @Mock
+    PasswordEncoder encoder;
+
+    CachingAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        var credentialCache = new VerifiedCredentialCache(100, Duration.ofMinutes(5));
+        provider = new CachingAuthenticationProvider(userDetailsService, encoder, credentialCache);
+    }
+
+    @Test
+    public void authenticate_RepeatedValidCredentials_MatchesPasswordOnce() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(applicationUser).when(userDetailsService).loadUserByUsername("login");
+        Mockito.doReturn(true).when(encoder).matches("password", "hash");
+
+        var first = provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password"));
+        var second = provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password"));
+
+        assertTrue(first.isAuthenticated());
+        assertTrue(second.isAuthenticated());
+
+        Mockito.verify(encoder, Mockito.times(1)).matches(any(), any());
+    }
+
+    @Test
+    public void authenticate_WrongPasswordAfterValidOne_ThrowsBadCredentials() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(applicationUser).when(userDetailsService).loadUserByUsername("login");
+        Mockito.doReturn(true).when(encoder).matches("password", "hash");
+        Mockito.doReturn(false).when(encoder).matches("wrong", "hash");
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password"));
+
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(new UsernamePasswordAuthenticationToken("login", "wrong")));
+    }
+
+    @Test
+    public void authenticate_PasswordHashChanged_MatchesPasswordAgain() {
+        Mockito.doReturn(new ApplicationUser(1L, "login", "hash", 100000L))
+                .doReturn(new ApplicationUser(1L, "login", "new-hash", 100000L))
+                .when(userDetailsService).loadUserByUsername("login");
+        Mockito.doReturn(true).when(encoder).matches("password", "hash");
+        Mockito.doReturn(false).when(encoder).matches("password", "new-hash");
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password"));
+
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password")));
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.example.security;
+
+import com.example.data.ApplicationUserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginLookupGuardTest {
+
+    @Mock
+    ApplicationUserRepository repository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void mightExist_UnknownLogin_ReturnsFalseUntilRegistered() {
+        var guard = new LoginLookupGuard(repository, transactionManager, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), false, 100);
+
+        assertTrue(guard.mightExist("+79876543210"));
+
+        guard.unknown("+79876543210");
+        assertFalse(guard.mightExist("+79876543210"));
+
+        guard.registered("+79876543210");
+        assertTrue(guard.mightExist("+79876543210"));
+    }
+
+    @Test
+    public void mightExist_BloomFilterEnabled_RejectsLoginsNotInDatabase() {
+        var guard = new LoginLookupGuard(repository, transactionManager, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), true, 1000);
+
+        Mockito.doReturn(IntStream.range(0, 500).mapToObj(i -> "+7900000" + i))
+                .when(repository).findAllLogins();
+
+        assertTrue(guard.mightExist("+79876543210"));
+
+        guard.loadKnownLogins();
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(guard.mightExist("+7900000" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (guard.mightExist("+7911111" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+
+        guard.registered("+79876543210");
+        assertTrue(guard.mightExist("+79876543210"));
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.example.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class PasswordHashingExecutorTest {
+
+    PasswordEncoder encoder = mock(PasswordEncoder.class);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    PasswordHashingExecutor executor;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    public void encode_ReturnsEncodedPasswordAndRecordsLatency() {
+        executor = new PasswordHashingExecutor(encoder, meterRegistry, 1, 1, Duration.ofSeconds(5));
+        doReturn("hash").when(encoder).encode("password");
+
+        assertEquals("hash", executor.encode("password"));
+        assertEquals(1, meterRegistry.get("password.hashing.duration").timer().count());
+    }
+
+    @Test
+    public void encode_PoolAndQueueFull_ThrowsRejected() throws Exception {
+        executor = new PasswordHashingExecutor(encoder, meterRegistry, 1, 1, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        }).when(encoder).encode(any());
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> executor.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> executor.encode("second"));
+        while (meterRegistry.get("executor.queued").tag("name", "password-hashing").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingRejectedException.class, () -> executor.encode("third"));
+        assertEquals(1, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void encode_HashingTooSlow_ThrowsRejected() {
+        executor = new PasswordHashingExecutor(encoder, meterRegistry, 1, 1, Duration.ofMillis(50));
+        doAnswer(invocation -> {
+            release.await();
+            return "hash";
+        }).when(encoder).encode(any());
+
+        assertThrows(PasswordHashingRejectedException.class, () -> executor.encode("password"));
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.example.services;
+
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentBatchWriterTest {
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    PaymentBatchWriter writer;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        writer.destroy();
+    }
+
+    @Test
+    public void submit_Disabled_ExecutesPaymentImmediately() throws Exception {
+        writer = newWriter(false);
+        Mockito.doReturn(Optional.of(Mockito.mock(PaymentResult.class))).when(paymentRepository)
+                .debitAndSave(any(), any(), any(), anyLong());
+
+        assertFalse(writer.isEnabled());
+        assertTrue(writer.submit(payment(15000)).get(5, TimeUnit.SECONDS));
+
+        Mockito.verify(paymentRepository, Mockito.never()).debitAndSaveAll(any());
+    }
+
+    @Test
+    public void submit_ConcurrentPayments_ExecutesOneBatchAndReportsEachResult() throws Exception {
+        writer = newWriter(true);
+        Mockito.doReturn(List.of(true, false)).when(paymentRepository).debitAndSaveAll(any());
+
+        CompletableFuture<Boolean> first = writer.submit(payment(15000));
+        CompletableFuture<Boolean> second = writer.submit(payment(150000));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertFalse(second.get(5, TimeUnit.SECONDS));
+
+        Mockito.verify(paymentRepository).debitAndSaveAll(Mockito.argThat(payments -> payments.size() == 2));
+        Mockito.verify(transactionManager).commit(any());
+        Mockito.verify(paymentRepository, Mockito.never()).debitAndSave(any(), any(), any(), anyLong());
+    }
+
+    @Test
+    public void submit_BatchFails_RetriesPaymentsIndividually() throws Exception {
+        writer = newWriter(true);
+        Mockito.doThrow(new QueryTimeoutException("timeout")).when(paymentRepository).debitAndSaveAll(any());
+        Mockito.when(paymentRepository.debitAndSave(any(), any(), any(), anyLong()))
+                .thenReturn(Optional.of(Mockito.mock(PaymentResult.class)))
+                .thenThrow(new DataIntegrityViolationException("violation"));
+
+        CompletableFuture<Boolean> first = writer.submit(payment(15000));
+        CompletableFuture<Boolean> second = writer.submit(payment(15000));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        var exception = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, exception.getCause());
+
+        Mockito.verify(transactionManager).rollback(any());
+        Mockito.verify(paymentRepository, Mockito.times(2)).debitAndSave(any(), any(), any(), anyLong());
+    }
+
+    private PaymentBatchWriter newWriter(boolean enabled) {
+        return new PaymentBatchWriter(paymentRepository, transactionManager, new SimpleMeterRegistry(),
+                enabled, 2, Duration.ofSeconds(5), 16);
+    }
+
+    private static Payment payment(long amount) {
+        return new Payment(null, new Date(), "+79876543210", amount,
+                new ApplicationUser(1L, "login", "password", 100000L));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.example.services;
+
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PaymentHistoryExporterTest {
+
+    PaymentRepository repository = mock(PaymentRepository.class);
+
+    ObjectMapper objectMapper = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    EntityManager entityManager = mock(EntityManager.class);
+
+    PaymentHistoryExporter exporter = new PaymentHistoryExporter(repository, objectMapper, entityManager,
+            new ReadYourWrites(new SimpleMeterRegistry(), List.of(), Duration.ofSeconds(5), 100));
+
+    ApplicationUser user = new ApplicationUser(1L, "login", "password", 100000L);
+
+    Date date = new Date(1700000000000L);
+
+    @Test
+    public void export_Ndjson_WritesOneJsonObjectPerLineAndDetachesRows() throws Exception {
+        var first = new Payment(1L, date, "+79876543210", 1500, user);
+        var second = new Payment(2L, date, "+79876543211", 250, user);
+        givenPayments(first, second);
+        var out = new ByteArrayOutputStream();
+
+        exporter.export(user, HistoryExportFormat.NDJSON, out);
+
+        assertEquals("""
+                {"date":"2023-11-14T22:13:20.000+00:00","phone":"+79876543210","amount":15.0}
+                {"date":"2023-11-14T22:13:20.000+00:00","phone":"+79876543211","amount":2.5}
+                """, out.toString(StandardCharsets.UTF_8));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    public void export_Csv_WritesHeaderAndRows() throws Exception {
+        givenPayments(new Payment(1L, date, "+79876543210", 1505, user));
+        var out = new ByteArrayOutputStream();
+
+        exporter.export(user, HistoryExportFormat.CSV, out);
+
+        assertEquals("""
+                date,phone,amount
+                2023-11-14T22:13:20Z,+79876543210,15.05
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void export_ClientDisconnects_ThrowsIOException() {
+        givenPayments(new Payment(1L, date, "+79876543210", 1500, user));
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> exporter.export(user, HistoryExportFormat.NDJSON, out));
+    }
+
+    private void givenPayments(Payment... payments) {
+        doReturn(Stream.of(payments)).when(repository).streamAllByUser(user);
+    }
+
+}
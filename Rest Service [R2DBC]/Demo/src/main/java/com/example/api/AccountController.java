@@ -0,0 +1,205 @@
+package com.example.api;
+
+import com.example.api.dto.PagedHistory;
+import com.example.api.dto.PaymentData;
+import com.example.api.dto.SpendingSummary;
+import com.example.api.dto.UserData;
+import com.example.api.dto.UserLoginData;
+import com.example.api.dto.UserRegisterData;
+import com.example.entities.ApplicationUser;
+import com.example.api.dto.Balance;
+
+import com.example.services.AccountService;
+import com.example.services.HistoryExportFormat;
+import com.example.services.HistoryPage;
+import com.example.services.PasswordHashingRejectedException;
+import com.example.services.PaymentHistoryExporter;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.Optional;
+
+@RestController
+public class AccountController {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    static final String TOTAL_PAGES_HEADER = "X-Total-Pages";
+
+    private final AccountService accountService;
+
+    private final PaymentHistoryExporter historyExporter;
+
+    public AccountController(AccountService applicationUserService, PaymentHistoryExporter historyExporter) {
+        this.accountService = applicationUserService;
+        this.historyExporter = historyExporter;
+    }
+
+    @PostMapping("/api/registration")
+    public Mono<ResponseEntity<?>> handleRegistrationNewUser(@RequestBody UserRegisterData registerData) {
+        if (registerData.login() == null || registerData.password() == null ||
+                registerData.login().trim().equals("") || registerData.password().trim().equals("")) {
+            return Mono.just(ResponseEntity.badRequest().body("Login and password required"));
+        }
+        if (!registerData.login().matches("[0-9+]+")) {
+            return Mono.just(ResponseEntity.badRequest().body("Login must be phone number"));
+        }
+
+        return accountService.registrationNewUser(registerData)
+                .<ResponseEntity<?>>map(user -> ResponseEntity.created(URI.create("/api/profile"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(new UserData(user)))
+                .defaultIfEmpty(ResponseEntity.badRequest().body("User with this login already exists"))
+                .onErrorResume(PasswordHashingRejectedException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body("Registration is temporarily unavailable")));
+    }
+
+    @PostMapping("/api/login")
+    public Mono<ResponseEntity<?>> handleLogin(@RequestBody UserLoginData loginData) {
+        if (loginData.login() == null || loginData.password() == null ||
+                loginData.login().trim().equals("") || loginData.password().trim().equals("")) {
+            return Mono.just(ResponseEntity.badRequest().body("Login and password required"));
+        }
+
+        return accountService.login(loginData)
+                .<ResponseEntity<?>>map(token -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(token))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid login or password"));
+    }
+
+    @GetMapping("/api/balance")
+    public Mono<ResponseEntity<Balance>> balance(@AuthenticationPrincipal ApplicationUser user) {
+        return accountService.currentUser(user)
+                .map(currentUser -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(new Balance(currentUser)));
+    }
+
+    @PostMapping("/api/payment")
+    public Mono<ResponseEntity<String>> handleMakingPayment(
+            @AuthenticationPrincipal ApplicationUser user,
+            @RequestBody PaymentData paymentData) {
+        if (!paymentData.phone().matches("[0-9+]+")) {
+            return Mono.just(ResponseEntity.badRequest().body("Phone number must contain only numbers"));
+        }
+        if (paymentData.amount() <= 0) {
+            return Mono.just(ResponseEntity.badRequest().body("Amount must be positive"));
+        } else {
+            return accountService.makingPayment(user, paymentData).map(ResponseEntity::ok);
+        }
+    }
+
+    @GetMapping("/api/history")
+    public Mono<ResponseEntity<?>> handleHistory(
+            @RequestParam(value = "page", required = false , defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false, defaultValue = "10" ) int size,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(value = "envelope", required = false, defaultValue = "false") boolean envelope,
+            @AuthenticationPrincipal ApplicationUser user) {
+        if (from != null && to != null && !from.before(to)) {
+            return Mono.just(ResponseEntity.badRequest().body("From must be before to"));
+        }
+
+        Mono<HistoryPage> historyPage;
+        if (cursor != null) {
+            Optional<Long> afterId = PaymentCursor.decode(cursor);
+            if (afterId.isEmpty()) {
+                return Mono.just(ResponseEntity.badRequest().body("Invalid cursor"));
+            }
+            historyPage = accountService.historyPage(user, afterId.get(), from, to, size);
+        } else {
+            PageRequest pageRequest = PageRequest.of(page, size, Sort.by("id").ascending());
+            historyPage = accountService.historyPage(user, from, to, pageRequest);
+        }
+
+        return historyPage.map(loaded -> {
+            var response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON);
+            String nextCursor = null;
+            if (loaded.lastPaymentId() != null && loaded.payments().size() == size) {
+                nextCursor = PaymentCursor.encode(loaded.lastPaymentId());
+                response.header(NEXT_CURSOR_HEADER, nextCursor);
+            }
+            Long totalPages = null;
+            if (loaded.totalCount() != null) {
+                response.header(TOTAL_COUNT_HEADER, loaded.totalCount().toString());
+                if (size > 0) {
+                    totalPages = (loaded.totalCount() + size - 1) / size;
+                    response.header(TOTAL_PAGES_HEADER, totalPages.toString());
+                }
+            }
+            if (envelope) {
+                return response.body(new PagedHistory(loaded.payments(), cursor == null ? page : null, size,
+                        loaded.totalCount(), totalPages, nextCursor));
+            }
+            return response.body(loaded.payments());
+        });
+    }
+
+    @GetMapping("/api/history/export")
+    public ResponseEntity<Flux<String>> handleHistoryExport(
+            @RequestParam(value = "format", required = false, defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal ApplicationUser user) {
+        Optional<HistoryExportFormat> exportFormat = HistoryExportFormat.fromParameter(format);
+        if (exportFormat.isEmpty()) {
+            return ResponseEntity.badRequest().body(Flux.just("Format must be ndjson or csv"));
+        }
+
+        HistoryExportFormat selected = exportFormat.get();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(selected.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("history." + selected.getExtension())
+                        .build()
+                        .toString())
+                .body(historyExporter.export(user, selected));
+    }
+
+    @GetMapping("/api/summary")
+    public Mono<ResponseEntity<SpendingSummary>> summary(@AuthenticationPrincipal ApplicationUser user) {
+        return accountService.summary(user)
+                .map(summary -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(summary));
+    }
+
+    @PostMapping("/api/edit")
+    public Mono<ResponseEntity<UserData>> handleUpdateUserProfile(
+            @AuthenticationPrincipal ApplicationUser user,
+            @RequestBody UserData userData) {
+        return accountService.updateUserProfile(user, userData)
+                .map(updatedUser -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(new UserData(updatedUser)));
+    }
+
+}
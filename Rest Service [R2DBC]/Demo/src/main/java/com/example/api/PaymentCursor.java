@@ -0,0 +1,35 @@
+package com.example.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Opaque continuation token for {@code /api/history}. It carries the id of the last payment on the
+ * previous page; clients only pass it back.
+ */
+final class PaymentCursor {
+
+    private static final String PREFIX = "p1:";
+
+    private PaymentCursor() {}
+
+    static String encode(long lastPaymentId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastPaymentId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static Optional<Long> decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!value.startsWith(PREFIX)) {
+                return Optional.empty();
+            }
+            long lastPaymentId = Long.parseLong(value.substring(PREFIX.length()));
+            return lastPaymentId >= 0 ? Optional.of(lastPaymentId) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+package com.example.api.dto;
+
+public record AccessToken(String accessToken, String tokenType, long expiresIn) {
+}
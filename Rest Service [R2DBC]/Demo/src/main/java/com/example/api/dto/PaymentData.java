@@ -0,0 +1,18 @@
+package com.example.api.dto;
+
+import com.example.entities.Payment;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Date;
+
+public record PaymentData(@JsonIgnore Long id, Date date, String phone, double amount) {
+
+    public PaymentData(Date date, String phone, double amount) {
+        this(null, date, phone, amount);
+    }
+
+    public PaymentData(Payment payment) {
+        this(payment.getId(), payment.getDate(), payment.getPhone(), (double)payment.getAmount() / 100);
+    }
+
+}
@@ -0,0 +1,4 @@
+package com.example.api.dto;
+
+public record UserRegisterData(String login, String password) {
+}
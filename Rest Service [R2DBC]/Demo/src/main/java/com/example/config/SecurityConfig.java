@@ -0,0 +1,54 @@
+package com.example.config;
+
+import com.example.security.AccessTokenAuthenticationWebFilter;
+import com.example.security.AccessTokenService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * HTTP Basic is checked by the {@code ReactiveUserDetailsService}, which matches the password on
+ * a bounded elastic thread, so BCrypt never runs on the event loop.
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         AccessTokenService accessTokenService) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(Customizer.withDefaults())
+                .addFilterBefore(new AccessTokenAuthenticationWebFilter(accessTokenService),
+                        SecurityWebFiltersOrder.HTTP_BASIC)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers("/api/balance",
+                                "/api/payment",
+                                "/api/history",
+                                "/api/history/export",
+                                "/api/summary",
+                                "/api/edit").hasRole("USER")
+                        .pathMatchers(
+                                "/api/registration",
+                                "/api/login",
+                                "/actuator/health"
+                            ).permitAll()
+                        .pathMatchers("/actuator/metrics/**").authenticated())
+                .build();
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+
+}
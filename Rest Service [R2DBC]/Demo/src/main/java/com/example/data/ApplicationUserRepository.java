@@ -0,0 +1,16 @@
+package com.example.data;
+
+import com.example.entities.ApplicationUser;
+import reactor.core.publisher.Mono;
+
+public interface ApplicationUserRepository {
+
+    Mono<ApplicationUser> findByLogin(String login);
+
+    Mono<ApplicationUser> findById(Long id);
+
+    Mono<ApplicationUser> save(ApplicationUser applicationUser);
+
+    Mono<ApplicationUser> update(ApplicationUser applicationUser);
+
+}
@@ -0,0 +1,30 @@
+package com.example.data;
+
+import com.example.api.dto.PaymentData;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+public interface PaymentRepository {
+
+    Flux<PaymentData> findAllByUser(ApplicationUser user, Date from, Date to, PageRequest pageRequest);
+
+    Flux<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit);
+
+    Flux<Payment> streamAllByUser(ApplicationUser user);
+
+    Flux<PaymentSummaryRow> findSummaryByUser(ApplicationUser user);
+
+    Mono<Long> countByUser(ApplicationUser user);
+
+    /**
+     * Debits the user and records the payment in one statement. Completes empty when the balance
+     * does not cover the amount.
+     */
+    Mono<PaymentResult> debitAndSave(Payment payment);
+
+}
@@ -0,0 +1,126 @@
+package com.example.data.impl;
+
+import com.example.data.ApplicationUserRepository;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Gender;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Repository
+public class ApplicationUserR2dbcRepository implements ApplicationUserRepository {
+
+    // gender_type has no R2DBC codec, it travels as text
+    static final String COLUMNS = """
+                id, login, password, balance, first_name, last_name, patronymic, email,
+                CAST(gender AS TEXT) AS gender, birthday""";
+
+    String FIND_USER_BY_LOGIN_SQL = """
+                SELECT %s
+                FROM application_user
+                WHERE login = :login
+                """.formatted(COLUMNS);
+
+    String FIND_USER_BY_ID_SQL = """
+                SELECT %s
+                FROM application_user
+                WHERE id = :id
+                """.formatted(COLUMNS);
+
+    String SAVE_NEW_USER_SQL = """
+                INSERT INTO application_user
+                    (login, password, balance, first_name, last_name, patronymic, email, gender, birthday)
+                VALUES (:login, :password, :balance, :first_name, :last_name, :patronymic, :email,
+                        CAST(:gender AS gender_type), :birthday)
+                RETURNING id
+                """;
+
+    String UPDATE_USER_SQL = """
+                UPDATE application_user
+                SET first_name = :first_name, last_name = :last_name,
+                    patronymic = :patronymic, email = :email, gender = CAST(:gender AS gender_type),
+                    birthday = :birthday
+                WHERE id = :id
+                """;
+
+    private final DatabaseClient databaseClient;
+
+    public ApplicationUserR2dbcRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<ApplicationUser> findByLogin(String login) {
+        return databaseClient.sql(FIND_USER_BY_LOGIN_SQL)
+                .bind("login", login)
+                .map(ApplicationUserR2dbcRepository::map)
+                .one();
+    }
+
+    @Override
+    public Mono<ApplicationUser> findById(Long id) {
+        return databaseClient.sql(FIND_USER_BY_ID_SQL)
+                .bind("id", id)
+                .map(ApplicationUserR2dbcRepository::map)
+                .one();
+    }
+
+    @Override
+    public Mono<ApplicationUser> save(ApplicationUser applicationUser) {
+        return profile(databaseClient.sql(SAVE_NEW_USER_SQL), applicationUser)
+                .bind("login", applicationUser.getLogin())
+                .bind("password", applicationUser.getPassword())
+                .bind("balance", applicationUser.getBalance())
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    applicationUser.setId(id);
+                    return applicationUser;
+                });
+    }
+
+    @Override
+    public Mono<ApplicationUser> update(ApplicationUser applicationUser) {
+        return profile(databaseClient.sql(UPDATE_USER_SQL), applicationUser)
+                .bind("id", applicationUser.getId())
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(applicationUser);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec profile(DatabaseClient.GenericExecuteSpec spec,
+                                                             ApplicationUser user) {
+        return spec
+                .bind("first_name", Parameter.fromOrEmpty(user.getFirstName(), String.class))
+                .bind("last_name", Parameter.fromOrEmpty(user.getLastName(), String.class))
+                .bind("patronymic", Parameter.fromOrEmpty(user.getPatronymic(), String.class))
+                .bind("email", Parameter.fromOrEmpty(user.getEmail(), String.class))
+                .bind("gender", Parameter.fromOrEmpty(
+                        user.getGender() != null ? user.getGender().name() : null, String.class))
+                .bind("birthday", Parameter.fromOrEmpty(
+                        user.getBirthday() != null ? user.getBirthday().toLocalDate() : null, LocalDate.class));
+    }
+
+    static ApplicationUser map(Readable row) {
+        ApplicationUser user = new ApplicationUser(
+                row.get("id", Long.class),
+                row.get("login", String.class),
+                row.get("password", String.class),
+                row.get("balance", Long.class));
+        user.setFirstName(row.get("first_name", String.class));
+        user.setLastName(row.get("last_name", String.class));
+        user.setPatronymic(row.get("patronymic", String.class));
+        user.setEmail(row.get("email", String.class));
+        String gender = row.get("gender", String.class);
+        user.setGender(gender != null ? Gender.valueOf(gender) : null);
+        LocalDate birthday = row.get("birthday", LocalDate.class);
+        user.setBirthday(birthday != null ? Date.valueOf(birthday) : null);
+        return user;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.example.data.impl;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import io.r2dbc.spi.Readable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+@Repository
+public class PaymentR2dbcRepository implements PaymentRepository {
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    static final String COLUMNS = "id, date, phone, amount";
+
+    String FIND_ALL_BY_USER_SQL = """
+                SELECT %s FROM payment
+                WHERE user_id = :user_id
+                  AND date >= COALESCE(CAST(:from AS TIMESTAMP), '-infinity')
+                  AND date < COALESCE(CAST(:to AS TIMESTAMP), 'infinity')
+                ORDER BY id
+                LIMIT :limit OFFSET :offset
+                """.formatted(COLUMNS);
+
+    String FIND_ALL_BY_USER_AFTER_SQL = """
+                SELECT %s FROM payment
+                WHERE user_id = :user_id AND id > :after_id
+                  AND date >= COALESCE(CAST(:from AS TIMESTAMP), '-infinity')
+                  AND date < COALESCE(CAST(:to AS TIMESTAMP), 'infinity')
+                ORDER BY id
+                LIMIT :limit
+                """.formatted(COLUMNS);
+
+    String FIND_ALL_BY_USER_FOR_EXPORT_SQL = """
+                SELECT %s FROM payment
+                WHERE user_id = :user_id
+                ORDER BY id
+                """.formatted(COLUMNS);
+
+    String FIND_SUMMARY_BY_USER_SQL = """
+                SELECT kind, bucket, total_amount, payment_count FROM payment_summary
+                WHERE user_id = :user_id
+                ORDER BY kind, bucket
+                """;
+
+    String COUNT_BY_USER_SQL = """
+                SELECT payment_count FROM application_user
+                WHERE id = :user_id
+                """;
+
+    String DEBIT_AND_ADD_PAYMENT_SQL = """
+                WITH debited AS (
+                    UPDATE application_user
+                    SET balance = balance - :amount,
+                        payment_count = payment_count + 1
+                    WHERE id = :user_id AND balance >= :amount
+                    RETURNING id, balance
+                ), inserted AS (
+                    INSERT INTO payment
+                        (date, phone, amount, user_id)
+                    SELECT CAST(:date AS TIMESTAMP), CAST(:phone AS VARCHAR), CAST(:amount AS BIGINT), id FROM debited
+                    RETURNING id, user_id, date, phone, amount
+                ), summarized AS (
+                    INSERT INTO payment_summary
+                        (user_id, kind, bucket, total_amount, payment_count)
+                    SELECT inserted.user_id, bucket.kind, bucket.name, inserted.amount, 1
+                    FROM inserted CROSS JOIN LATERAL (VALUES
+                        ('DAY', to_char(inserted.date, 'YYYY-MM-DD')),
+                        ('MONTH', to_char(inserted.date, 'YYYY-MM')),
+                        ('PHONE', inserted.phone)
+                    ) AS bucket (kind, name)
+                    ON CONFLICT (user_id, kind, bucket) DO UPDATE
+                    SET total_amount = payment_summary.total_amount + EXCLUDED.total_amount,
+                        payment_count = payment_summary.payment_count + 1
+                )
+                SELECT inserted.id AS payment_id, debited.balance
+                FROM inserted, debited
+                """;
+
+    private final DatabaseClient databaseClient;
+
+    public PaymentR2dbcRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<PaymentData> findAllByUser(ApplicationUser user, Date from, Date to, PageRequest pageRequest) {
+        return databaseClient.sql(FIND_ALL_BY_USER_SQL)
+                .bind("user_id", user.getId())
+                .bind("from", timestamp(from))
+                .bind("to", timestamp(to))
+                .bind("limit", pageRequest.getPageSize())
+                .bind("offset", pageRequest.getOffset())
+                .map(PaymentR2dbcRepository::mapData)
+                .all();
+    }
+
+    @Override
+    public Flux<PaymentData> findAllByUserAfter(ApplicationUser user, long afterId, Date from, Date to, int limit) {
+        return databaseClient.sql(FIND_ALL_BY_USER_AFTER_SQL)
+                .bind("user_id", user.getId())
+                .bind("after_id", afterId)
+                .bind("from", timestamp(from))
+                .bind("to", timestamp(to))
+                .bind("limit", limit)
+                .map(PaymentR2dbcRepository::mapData)
+                .all();
+    }
+
+    /**
+     * Rows are fetched from a portal {@value #EXPORT_FETCH_SIZE} at a time as the subscriber
+     * requests them, so a slow client holds back the query instead of buffering the history.
+     */
+    @Override
+    public Flux<Payment> streamAllByUser(ApplicationUser user) {
+        return databaseClient.sql(FIND_ALL_BY_USER_FOR_EXPORT_SQL)
+                .filter(statement -> statement.fetchSize(EXPORT_FETCH_SIZE))
+                .bind("user_id", user.getId())
+                .map(row -> {
+                    Payment payment = map(row);
+                    payment.setUser(user);
+                    return payment;
+                })
+                .all();
+    }
+
+    @Override
+    public Flux<PaymentSummaryRow> findSummaryByUser(ApplicationUser user) {
+        return databaseClient.sql(FIND_SUMMARY_BY_USER_SQL)
+                .bind("user_id", user.getId())
+                .map(row -> new PaymentSummaryRow(
+                        row.get("kind", String.class),
+                        row.get("bucket", String.class),
+                        row.get("total_amount", Long.class),
+                        row.get("payment_count", Long.class)))
+                .all();
+    }
+
+    @Override
+    public Mono<Long> countByUser(ApplicationUser user) {
+        return databaseClient.sql(COUNT_BY_USER_SQL)
+                .bind("user_id", user.getId())
+                .map(row -> row.get("payment_count", Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<PaymentResult> debitAndSave(Payment payment) {
+        return databaseClient.sql(DEBIT_AND_ADD_PAYMENT_SQL)
+                .bind("amount", payment.getAmount())
+                .bind("user_id", payment.getUser().getId())
+                .bind("date", timestamp(payment.getDate()))
+                .bind("phone", payment.getPhone())
+                .map(row -> new PaymentResult(row.get("payment_id", Long.class), row.get("balance", Long.class)))
+                .one();
+    }
+
+    private static Parameter timestamp(Date date) {
+        return Parameter.fromOrEmpty(date != null ? new Timestamp(date.getTime()).toLocalDateTime() : null,
+                LocalDateTime.class);
+    }
+
+    private static PaymentData mapData(Readable row) {
+        return new PaymentData(
+                row.get("id", Long.class),
+                Timestamp.valueOf(row.get("date", LocalDateTime.class)),
+                row.get("phone", String.class),
+                (double) row.get("amount", Long.class) / 100);
+    }
+
+    private static Payment map(Readable row) {
+        Payment payment = new Payment();
+        payment.setId(row.get("id", Long.class));
+        payment.setDate(Timestamp.valueOf(row.get("date", LocalDateTime.class)));
+        payment.setPhone(row.get("phone", String.class));
+        payment.setAmount(row.get("amount", Long.class));
+        return payment;
+    }
+
+}
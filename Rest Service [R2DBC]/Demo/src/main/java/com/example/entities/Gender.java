@@ -0,0 +1,8 @@
+package com.example.entities;
+
+public enum Gender {
+    
+    MALE,
+    FEMALE;
+    
+}
@@ -0,0 +1,23 @@
+package com.example.security;
+
+import com.example.data.ApplicationUserRepository;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Component
+public class ApplicationUserDetailsService implements ReactiveUserDetailsService {
+
+    private final ApplicationUserRepository repository;
+
+    public ApplicationUserDetailsService(ApplicationUserRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return repository.findByLogin(username).cast(UserDetails.class);
+    }
+
+}
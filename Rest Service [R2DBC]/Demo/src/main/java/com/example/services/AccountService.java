@@ -0,0 +1,164 @@
+package com.example.services;
+
+import com.example.api.dto.AccessToken;
+import com.example.api.dto.PaymentData;
+import com.example.api.dto.SpendingSummary;
+import com.example.api.dto.SummaryBucket;
+import com.example.api.dto.UserData;
+import com.example.api.dto.UserLoginData;
+import com.example.api.dto.UserRegisterData;
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentSummaryRow;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import com.example.security.AccessTokenService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Service
+public class AccountService {
+
+    private static final long START_BALANCE = 100000L;
+
+    private final ApplicationUserRepository applicationUserRepository;
+
+    private final PaymentRepository paymentRepository;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final AccessTokenService accessTokenService;
+
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    public AccountService(ApplicationUserRepository applicationUserRepository, PaymentRepository paymentRepository,
+                          PasswordEncoder passwordEncoder, AccessTokenService accessTokenService,
+                          PasswordHashingExecutor passwordHashingExecutor) {
+        this.applicationUserRepository = applicationUserRepository;
+        this.paymentRepository = paymentRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.accessTokenService = accessTokenService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+    }
+
+    /**
+     * Completes empty when the login is taken, including when a concurrent registration of the
+     * same login wins the insert.
+     */
+    public Mono<ApplicationUser> registrationNewUser(UserRegisterData registerData) {
+        return applicationUserRepository.findByLogin(registerData.login())
+                .hasElement()
+                .flatMap(exists -> exists ? Mono.empty() : passwordHashingExecutor.encode(registerData.password()))
+                .flatMap(encodePassword -> {
+                    ApplicationUser user = new ApplicationUser();
+                    user.setLogin(registerData.login());
+                    user.setPassword(encodePassword);
+                    user.setBalance(START_BALANCE);
+                    return applicationUserRepository.save(user);
+                })
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty());
+    }
+
+    public Mono<AccessToken> login(UserLoginData loginData) {
+        return applicationUserRepository.findByLogin(loginData.login())
+                .filterWhen(user -> Mono.fromCallable(() -> passwordEncoder.matches(loginData.password(), user.getPassword()))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .map(accessTokenService::issue);
+    }
+
+    public Mono<ApplicationUser> currentUser(ApplicationUser principal) {
+        return applicationUserRepository.findById(principal.getId())
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException("Couldn't find user " + principal.getLogin())));
+    }
+
+    public Mono<String> makingPayment(ApplicationUser principal, PaymentData paymentData) {
+        long amount = (long)(paymentData.amount() * 100);
+        Payment payment = new Payment();
+        payment.setDate(new Date());
+        payment.setPhone(paymentData.phone());
+        payment.setAmount(amount);
+        payment.setUser(principal);
+        return paymentRepository.debitAndSave(payment)
+                .map(result -> "Payment is success")
+                .defaultIfEmpty("Not enough funds");
+    }
+
+    public Flux<PaymentData> history(ApplicationUser user, Date from, Date to, PageRequest pageRequest) {
+        return paymentRepository.findAllByUser(user, from, to, pageRequest);
+    }
+
+    public Mono<HistoryPage> historyPage(ApplicationUser user, Date from, Date to, PageRequest pageRequest) {
+        return page(user, from, to, history(user, from, to, pageRequest));
+    }
+
+    public Flux<PaymentData> history(ApplicationUser user, long afterPaymentId, Date from, Date to, int size) {
+        return paymentRepository.findAllByUserAfter(user, afterPaymentId, from, to, size);
+    }
+
+    public Mono<HistoryPage> historyPage(ApplicationUser user, long afterPaymentId, Date from, Date to, int size) {
+        return page(user, from, to, history(user, afterPaymentId, from, to, size));
+    }
+
+    private Mono<HistoryPage> page(ApplicationUser user, Date from, Date to, Flux<PaymentData> history) {
+        Mono<List<PaymentData>> payments = history.collectList();
+        if (from != null || to != null) {
+            return payments.map(HistoryPage::of);
+        }
+        return payments.flatMap(page -> paymentRepository.countByUser(user)
+                .map(totalCount -> HistoryPage.of(page, totalCount)));
+    }
+
+    public Mono<SpendingSummary> summary(ApplicationUser user) {
+        return paymentRepository.findSummaryByUser(user)
+                .collectList()
+                .map(rows -> {
+                    List<SummaryBucket> days = new ArrayList<>();
+                    List<SummaryBucket> months = new ArrayList<>();
+                    List<SummaryBucket> phones = new ArrayList<>();
+                    for (PaymentSummaryRow row : rows) {
+                        switch (row.kind()) {
+                            case "DAY" -> days.add(new SummaryBucket(row));
+                            case "MONTH" -> months.add(new SummaryBucket(row));
+                            case "PHONE" -> phones.add(new SummaryBucket(row));
+                            default -> throw new IllegalStateException("Unknown summary kind " + row.kind());
+                        }
+                    }
+                    return new SpendingSummary(days, months, phones);
+                });
+    }
+
+    public Mono<ApplicationUser> updateUserProfile(ApplicationUser principal, UserData userData) {
+        return currentUser(principal).flatMap(user -> {
+            if (userData.firstName() != null) {
+                user.setFirstName(userData.firstName());
+            }
+            if (userData.lastName() != null) {
+                user.setLastName(userData.lastName());
+            }
+            if (userData.patronymic() != null) {
+                user.setPatronymic(userData.patronymic());
+            }
+            if (userData.email() != null) {
+                user.setEmail(userData.email());
+            }
+            if (userData.gender() != null) {
+                user.setGender(userData.gender());
+            }
+            if (userData.birthday() != null) {
+                user.setBirthday(userData.birthday());
+            }
+            return applicationUserRepository.update(user);
+        });
+    }
+
+}
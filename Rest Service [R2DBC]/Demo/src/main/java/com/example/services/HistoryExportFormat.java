@@ -0,0 +1,36 @@
+package com.example.services;
+
+import java.util.Optional;
+
+public enum HistoryExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    HistoryExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static Optional<HistoryExportFormat> fromParameter(String value) {
+        for (HistoryExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+
+}
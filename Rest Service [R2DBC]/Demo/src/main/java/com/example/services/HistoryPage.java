@@ -0,0 +1,23 @@
+package com.example.services;
+
+import com.example.api.dto.PaymentData;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of history. {@code totalCount} is the user's number of payments, known only for
+ * requests without a date range.
+ */
+public record HistoryPage(List<PaymentData> payments, Long lastPaymentId, Long totalCount) {
+
+    public static HistoryPage of(List<PaymentData> payments) {
+        return of(payments, null);
+    }
+
+    public static HistoryPage of(List<PaymentData> payments, Long totalCount) {
+        Long lastPaymentId = payments.isEmpty() ? null : payments.get(payments.size() - 1).id();
+        return new HistoryPage(Collections.unmodifiableList(payments), lastPaymentId, totalCount);
+    }
+
+}
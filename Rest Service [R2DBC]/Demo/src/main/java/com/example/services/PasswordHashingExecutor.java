@@ -0,0 +1,69 @@
+package com.example.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs password hashing on a small dedicated scheduler, never on the event loop. When its threads
+ * and queue are full, callers are rejected immediately instead of waiting.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final Scheduler scheduler;
+
+    private final Duration timeout;
+
+    private final Timer hashTimer;
+
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${account.password-hashing.threads:2}") int threads,
+                                   @Value("${account.password-hashing.queue-capacity:32}") int queueCapacity,
+                                   @Value("${account.password-hashing.timeout:5s}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        this.scheduler = Schedulers.newBoundedElastic(threads, queueCapacity, "password-hashing");
+        this.hashTimer = Timer.builder("password.hashing.duration")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .register(meterRegistry);
+    }
+
+    public Mono<String> encode(String rawPassword) {
+        return Mono.fromCallable(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)))
+                .subscribeOn(scheduler)
+                .timeout(timeout)
+                .onErrorMap(RejectedExecutionException.class, e -> {
+                    rejected.increment();
+                    return new PasswordHashingRejectedException("Password hashing queue is full");
+                })
+                .onErrorMap(TimeoutException.class, e -> {
+                    rejected.increment();
+                    return new PasswordHashingRejectedException("Password hashing timed out");
+                });
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.example.services;
+
+import com.example.api.dto.PaymentData;
+import com.example.data.PaymentRepository;
+import com.example.entities.ApplicationUser;
+import com.example.entities.Payment;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+
+/**
+ * Turns the whole payment history of a user into response lines. Rows are pulled from the
+ * database only as fast as the client reads them, so memory use does not grow with the size of
+ * the history. The read-only transaction keeps the portal open between fetches.
+ */
+@Component
+public class PaymentHistoryExporter {
+
+    private static final String CSV_HEADER = "date,phone,amount\n";
+
+    private final PaymentRepository paymentRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public PaymentHistoryExporter(PaymentRepository paymentRepository, ObjectMapper objectMapper) {
+        this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public Flux<String> export(ApplicationUser user, HistoryExportFormat format) {
+        Flux<Payment> payments = paymentRepository.streamAllByUser(user);
+        if (format == HistoryExportFormat.CSV) {
+            return payments.map(PaymentHistoryExporter::csvRow).startWith(CSV_HEADER);
+        }
+        return payments.handle((payment, sink) -> {
+            try {
+                sink.next(objectMapper.writeValueAsString(new PaymentData(payment)) + "\n");
+            } catch (JsonProcessingException e) {
+                sink.error(e);
+            }
+        });
+    }
+
+    static String csvRow(Payment payment) {
+        return payment.getDate().toInstant() + "," +
+                payment.getPhone() + "," +
+                BigDecimal.valueOf(payment.getAmount(), 2).toPlainString() + "\n";
+    }
+
+}
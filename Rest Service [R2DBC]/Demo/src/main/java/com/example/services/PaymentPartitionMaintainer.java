@@ -0,0 +1,48 @@
+package com.example.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps monthly partitions of {@code payment} created ahead of time, so inserts never hit a month
+ * without a partition. Runs once on startup and then daily; creating a partition that already
+ * exists is a no-op, so several instances may run it concurrently.
+ */
+@Component
+public class PaymentPartitionMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentPartitionMaintainer.class);
+
+    private final DatabaseClient databaseClient;
+
+    private final int monthsAhead;
+
+    public PaymentPartitionMaintainer(DatabaseClient databaseClient,
+                                      @Value("${account.payment-partitions.months-ahead:3}") int monthsAhead) {
+        this.databaseClient = databaseClient;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${account.payment-partitions.cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        databaseClient.sql("SELECT create_payment_partitions(:months_ahead) AS created")
+                .bind("months_ahead", monthsAhead)
+                .map(row -> row.get("created", Integer.class))
+                .one()
+                .subscribe(
+                        created -> {
+                            if (created > 0) {
+                                log.info("Created {} payment partitions", created);
+                            }
+                        },
+                        e -> log.warn("Could not create upcoming payment partitions", e));
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.example.api;
+
+import com.example.api.dto.PaymentData;
+import com.example.config.SecurityConfig;
+import com.example.entities.ApplicationUser;
+import com.example.security.AccessTokenService;
+import com.example.security.ApplicationUserDetailsService;
+import com.example.services.AccountService;
+import com.example.services.HistoryExportFormat;
+import com.example.services.HistoryPage;
+import com.example.services.PasswordHashingRejectedException;
+import com.example.services.PaymentHistoryExporter;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@WebFluxTest(AccountController.class)
+@Import({SecurityConfig.class, AccessTokenService.class})
+class AccountControllerTest {
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    AccessTokenService accessTokenService;
+
+    @MockBean
+    AccountService service;
+
+    @MockBean
+    PaymentHistoryExporter historyExporter;
+
+    @MockBean
+    ApplicationUserDetailsService userDetailsService;
+
+    ApplicationUser user = new ApplicationUser(1L, "+79876543210", null, 100000L);
+
+    @Test
+    public void handleRegistrationNewUser_LoginIsNotPhone_ReturnsBadRequest() {
+        client.post().uri("/api/registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"login\":\"login\",\"password\":\"password\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Login must be phone number");
+    }
+
+    @Test
+    public void handleRegistrationNewUser_HashingRejected_ReturnsServiceUnavailable() {
+        Mockito.doReturn(Mono.error(new PasswordHashingRejectedException("Password hashing queue is full")))
+                .when(service).registrationNewUser(any());
+
+        client.post().uri("/api/registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"login\":\"+79876543210\",\"password\":\"password\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    public void balance_Anonymous_ReturnsUnauthorized() {
+        client.get().uri("/api/balance")
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    public void metrics_Anonymous_ReturnsUnauthorized() {
+        client.get().uri("/actuator/metrics/hikaricp.connections.pending")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void balance_AccessToken_ReturnsBalance() {
+        Mockito.doReturn(Mono.just(user)).when(service).currentUser(user);
+
+        client.get().uri("/api/balance")
+                .headers(headers -> headers.setBearerAuth(accessTokenService.issue(user).accessToken()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.login").isEqualTo("+79876543210")
+                .jsonPath("$.balance").isEqualTo(1000.0);
+    }
+
+    @Test
+    public void handleHistory_FullPage_ReturnsCursorAndTotals() {
+        var payments = List.of(
+                new PaymentData(1L, new Date(), "+79876543210", 15.0),
+                new PaymentData(2L, new Date(), "+79876543210", 15.0)
+        );
+        Mockito.doReturn(Mono.just(HistoryPage.of(payments, 5L)))
+                .when(service).historyPage(eq(user), eq(null), eq(null), any());
+
+        client.get().uri("/api/history?size=2")
+                .headers(headers -> headers.setBearerAuth(accessTokenService.issue(user).accessToken()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(AccountController.NEXT_CURSOR_HEADER, PaymentCursor.encode(2L))
+                .expectHeader().valueEquals(AccountController.TOTAL_COUNT_HEADER, "5")
+                .expectHeader().valueEquals(AccountController.TOTAL_PAGES_HEADER, "3")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void handleHistoryExport_Csv_StreamsAttachment() {
+        Mockito.doReturn(Flux.just("date,phone,amount\n", "2024-03-01T10:00:00Z,+79876543210,15.00\n"))
+                .when(historyExporter).export(user, HistoryExportFormat.CSV);
+
+        client.get().uri("/api/history/export?format=csv")
+                .headers(headers -> headers.setBearerAuth(accessTokenService.issue(user).accessToken()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"history.csv\"")
+                .expectBody(String.class)
+                .isEqualTo("date,phone,amount\n2024-03-01T10:00:00Z,+79876543210,15.00\n");
+    }
+
+}
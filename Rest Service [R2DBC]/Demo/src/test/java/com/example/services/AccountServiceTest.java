@@ -0,0 +1,214 @@
+package com.example.services;
+
+import com.example.api.dto.AccessToken;
+import com.example.api.dto.PaymentData;
+import com.example.api.dto.UserLoginData;
+import com.example.api.dto.UserRegisterData;
+import com.example.data.ApplicationUserRepository;
+import com.example.data.PaymentRepository;
+import com.example.data.PaymentResult;
+import com.example.data.PaymentSummaryRow;
+import com.example.entities.ApplicationUser;
+import com.example.security.AccessTokenService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(MockitoExtension.class)
+class AccountServiceTest {
+
+    @Mock
+    ApplicationUserRepository applicationUserRepository;
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    PasswordEncoder encoder;
+
+    @Mock
+    AccessTokenService accessTokenService;
+
+    @Mock
+    PasswordHashingExecutor passwordHashingExecutor;
+
+    @InjectMocks
+    AccountService service;
+
+    @Test
+    public void registrationNewUser_NewLogin_SavesUser() {
+        var registerData = new UserRegisterData("login", "password");
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(Mono.empty()).when(applicationUserRepository).findByLogin("login");
+        Mockito.doReturn(Mono.just("hash")).when(passwordHashingExecutor).encode("password");
+        Mockito.doReturn(Mono.just(applicationUser)).when(applicationUserRepository).save(any());
+
+        StepVerifier.create(service.registrationNewUser(registerData))
+                .expectNext(applicationUser)
+                .verifyComplete();
+
+        Mockito.verify(applicationUserRepository).save(Mockito.argThat(user ->
+                "login".equals(user.getLogin()) && "hash".equals(user.getPassword()) && user.getBalance() == 100000L));
+    }
+
+    @Test
+    public void registrationNewUser_ExistingLogin_CompletesEmpty() {
+        var registerData = new UserRegisterData("login", "password");
+
+        Mockito.doReturn(Mono.just(new ApplicationUser(1L, "login", "hash", 100000L)))
+                .when(applicationUserRepository).findByLogin("login");
+
+        StepVerifier.create(service.registrationNewUser(registerData))
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(passwordHashingExecutor);
+        Mockito.verifyNoMoreInteractions(applicationUserRepository);
+    }
+
+    @Test
+    public void registrationNewUser_ConcurrentRegistrationWins_CompletesEmpty() {
+        var registerData = new UserRegisterData("login", "password");
+
+        Mockito.doReturn(Mono.empty()).when(applicationUserRepository).findByLogin("login");
+        Mockito.doReturn(Mono.just("hash")).when(passwordHashingExecutor).encode("password");
+        Mockito.doReturn(Mono.error(new DuplicateKeyException("login"))).when(applicationUserRepository).save(any());
+
+        StepVerifier.create(service.registrationNewUser(registerData))
+                .verifyComplete();
+    }
+
+    @Test
+    public void login_WrongPassword_CompletesEmpty() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+
+        Mockito.doReturn(Mono.just(applicationUser)).when(applicationUserRepository).findByLogin("login");
+        Mockito.doReturn(false).when(encoder).matches("wrong", "hash");
+
+        StepVerifier.create(service.login(new UserLoginData("login", "wrong")))
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(accessTokenService);
+    }
+
+    @Test
+    public void login_ValidPassword_IssuesToken() {
+        var applicationUser = new ApplicationUser(1L, "login", "hash", 100000L);
+        var token = new AccessToken("token", "Bearer", 900);
+
+        Mockito.doReturn(Mono.just(applicationUser)).when(applicationUserRepository).findByLogin("login");
+        Mockito.doReturn(true).when(encoder).matches("password", "hash");
+        Mockito.doReturn(token).when(accessTokenService).issue(applicationUser);
+
+        StepVerifier.create(service.login(new UserLoginData("login", "password")))
+                .expectNext(token)
+                .verifyComplete();
+    }
+
+    @Test
+    public void currentUser_Deleted_FailsWithUsernameNotFound() {
+        var principal = new ApplicationUser(1L, "login", null, null);
+
+        Mockito.doReturn(Mono.empty()).when(applicationUserRepository).findById(1L);
+
+        StepVerifier.create(service.currentUser(principal))
+                .expectError(UsernameNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    public void makingPayment_FoundsEnough_ReturnsResponseString() {
+        var applicationUser = new ApplicationUser(1L, "login1", "password1", 100000L);
+        var paymentData = new PaymentData(new Date(), "+79876543210", 150.0);
+
+        Mockito.doReturn(Mono.just(new PaymentResult(1L, 85000L))).when(paymentRepository).debitAndSave(any());
+
+        StepVerifier.create(service.makingPayment(applicationUser, paymentData))
+                .expectNext("Payment is success")
+                .verifyComplete();
+
+        Mockito.verify(paymentRepository).debitAndSave(Mockito.argThat(p ->
+                p.getAmount() == 15000L && p.getUser() == applicationUser && "+79876543210".equals(p.getPhone())));
+    }
+
+    @Test
+    public void makingPayment_FoundsNotEnough_ReturnsResponseString() {
+        var applicationUser = new ApplicationUser(1L, "login1", "password1", 100000L);
+        var paymentData = new PaymentData(new Date(), "+79876543210", 1500.0);
+
+        Mockito.doReturn(Mono.empty()).when(paymentRepository).debitAndSave(any());
+
+        StepVerifier.create(service.makingPayment(applicationUser, paymentData))
+                .expectNext("Not enough funds")
+                .verifyComplete();
+    }
+
+    @Test
+    public void historyPage_NoDateRange_ReportsTotalCount() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var pageRequest = PageRequest.of(0, 2, Sort.by("id"));
+        var payments = List.of(
+                new PaymentData(1L, new Date(), "+79876543210", 15.0),
+                new PaymentData(2L, new Date(), "+79876543210", 15.0)
+        );
+
+        Mockito.doReturn(Flux.fromIterable(payments)).when(paymentRepository)
+                .findAllByUser(applicationUser, null, null, pageRequest);
+        Mockito.doReturn(Mono.just(7L)).when(paymentRepository).countByUser(applicationUser);
+
+        StepVerifier.create(service.historyPage(applicationUser, null, null, pageRequest))
+                .expectNext(new HistoryPage(payments, 2L, 7L))
+                .verifyComplete();
+    }
+
+    @Test
+    public void historyPage_DateRange_SkipsCount() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+        var from = new Date(0);
+
+        Mockito.doReturn(Flux.empty()).when(paymentRepository).findAllByUserAfter(applicationUser, 5L, from, null, 10);
+
+        StepVerifier.create(service.historyPage(applicationUser, 5L, from, null, 10))
+                .expectNext(new HistoryPage(List.of(), null, null))
+                .verifyComplete();
+
+        Mockito.verify(paymentRepository, Mockito.never()).countByUser(any());
+    }
+
+    @Test
+    public void summary_GroupsRowsByKind() {
+        var applicationUser = new ApplicationUser(1L, "login", "password", 100000L);
+
+        Mockito.doReturn(Flux.just(
+                new PaymentSummaryRow("DAY", "2024-03-01", 1500, 1),
+                new PaymentSummaryRow("MONTH", "2024-03", 1500, 1),
+                new PaymentSummaryRow("PHONE", "+79876543210", 1500, 1)
+        )).when(paymentRepository).findSummaryByUser(applicationUser);
+
+        StepVerifier.create(service.summary(applicationUser))
+                .assertNext(summary -> {
+                    assertEquals(1, summary.days().size());
+                    assertEquals("2024-03", summary.months().get(0).bucket());
+                    assertEquals(15.0, summary.phones().get(0).total());
+                })
+                .verifyComplete();
+    }
+
+}
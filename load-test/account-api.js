@@ -0,0 +1,96 @@
+// The same HTTP load for the JDBC, JPA and R2DBC builds, so throughput, latency and the number of
+// concurrent clients one instance sustains can be compared between them. Start one build on
+// :8080 against a fresh database (docker compose up in its directory), then:
+//   k6 run load-test/account-api.js
+//   k6 run -e VUS=2000 -e RAMP=2m -e DURATION=5m -e THINK=0.5 load-test/account-api.js
+//
+// Setup registers USERS users and logs them in; each VU then works as one of them with bearer
+// tokens. Keep RAMP + DURATION under the token lifetime (security.token.ttl, 15m by default).
+// Compare http_reqs, http_req_duration per endpoint and the VU count at which http_req_failed
+// or p(99) starts to climb; read the pool metrics of the build from /actuator/metrics meanwhile,
+// authenticated as one of the registered users.
+
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = parseInt(__ENV.USERS || '200');
+const VUS = parseInt(__ENV.VUS || '500');
+const THINK = parseFloat(__ENV.THINK || '0.1');
+
+export const options = {
+    setupTimeout: '5m',
+    scenarios: {
+        mixed: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: __ENV.RAMP || '1m', target: VUS },
+                { duration: __ENV.DURATION || '3m', target: VUS },
+                { duration: '20s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{endpoint:balance}': ['p(99)<500'],
+        'http_req_duration{endpoint:payment}': ['p(99)<1000'],
+        'http_req_duration{endpoint:history}': ['p(99)<1000'],
+    },
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+export function setup() {
+    const run = String(Date.now()).slice(-8);
+    const tokens = [];
+    for (let i = 0; i < USERS; i++) {
+        const credentials = JSON.stringify({ login: `+7${run}${String(i).padStart(5, '0')}`, password: 'password' });
+        const registration = http.post(`${BASE_URL}/api/registration`, credentials,
+            { headers: JSON_HEADERS, tags: { endpoint: 'registration' } });
+        check(registration, { 'registered': r => r.status === 201 });
+        const login = http.post(`${BASE_URL}/api/login`, credentials,
+            { headers: JSON_HEADERS, tags: { endpoint: 'login' } });
+        if (check(login, { 'logged in': r => r.status === 200 })) {
+            tokens.push(login.json('accessToken'));
+        }
+    }
+    if (tokens.length === 0) {
+        throw new Error(`No user could log in at ${BASE_URL}`);
+    }
+    return { tokens };
+}
+
+export default function (data) {
+    const params = endpoint => ({
+        headers: Object.assign({ Authorization: `Bearer ${data.tokens[__VU % data.tokens.length]}` }, JSON_HEADERS),
+        tags: { endpoint },
+    });
+    const roll = Math.random();
+
+    if (roll < 0.5) {
+        const balance = http.get(`${BASE_URL}/api/balance`, params('balance'));
+        check(balance, { 'balance 200': r => r.status === 200 });
+    } else if (roll < 0.7) {
+        const payment = http.post(`${BASE_URL}/api/payment`,
+            JSON.stringify({ phone: '+79876543210', amount: 0.01 }), params('payment'));
+        check(payment, { 'payment 200': r => r.status === 200 });
+    } else if (roll < 0.9) {
+        const first = http.get(`${BASE_URL}/api/history?size=20`, params('history'));
+        check(first, { 'history 200': r => r.status === 200 });
+        const cursor = first.headers['X-Next-Cursor'];
+        if (cursor) {
+            const next = http.get(`${BASE_URL}/api/history?size=20&cursor=${cursor}`, params('history'));
+            check(next, { 'history page 200': r => r.status === 200 });
+        }
+    } else if (roll < 0.98) {
+        const summary = http.get(`${BASE_URL}/api/summary`, params('summary'));
+        check(summary, { 'summary 200': r => r.status === 200 });
+    } else {
+        const exported = http.get(`${BASE_URL}/api/history/export?format=ndjson`, params('export'));
+        check(exported, { 'export 200': r => r.status === 200 });
+    }
+
+    sleep(THINK);
+}